@@ -0,0 +1,43 @@
+-- 创建库
+create database if not exists thumb_db;
+
+-- 切换库
+use thumb_db;
+
+-- 用户表
+create table if not exists user
+(
+    id       bigint auto_increment primary key,
+    username varchar(128) not null
+);
+
+-- 博客表
+create table if not exists blog
+(
+    id         bigint auto_increment primary key,
+    userId     bigint                             not null,
+    title      varchar(512)                       null comment '标题',
+    coverImg   varchar(1024)                      null comment '封面',
+    content    text                               not null comment '内容',
+    thumbCount int      default 0                 not null comment '点赞数',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    index idx_userId (userId),
+    -- 博客列表按 (createTime, id) 游标分页
+    index idx_createTime_id (createTime, id)
+);
+
+-- 点赞记录表
+create table if not exists thumb
+(
+    id         bigint auto_increment primary key,
+    userId     bigint                             not null,
+    blogId     bigint                             not null,
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    -- 同一用户对同一博客只有一条记录，点赞同步按（用户，博客）幂等写入依赖此索引
+    unique key uk_userId_blogId (userId, blogId)
+);
+
+-- 已有库升级
+-- alter table thumb add unique index uk_userId_blogId (userId, blogId);
+-- alter table blog add index idx_createTime_id (createTime, id);
@@ -0,0 +1,88 @@
+package com.shousi.thumbweb.config;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热点探测与本地缓存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.cache")
+public class CacheProperties {
+
+    /**
+     * 热点探测的衰减周期（秒），每经过一个周期所有计数减半
+     */
+    private long hotKeyFadingSeconds = 10;
+
+    /**
+     * 本地缓存写入后的过期时间（秒），开启跨节点失效后可以适当调大
+     */
+    private long localExpireSeconds = 300;
+
+    /**
+     * 负缓存（未点赞）的过期时间（秒），比本地缓存短，限制失效广播丢失时的影响
+     */
+    private long negativeExpireSeconds = 30;
+
+    /**
+     * 负缓存的最大条目数，与本地缓存分开计算，避免大量未点赞记录挤掉热点数据
+     */
+    private long negativeMaximumSize = 100000;
+
+    /**
+     * 集群热点聚合
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 本地缓存跨节点失效
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否开启集群热点聚合
+         */
+        private boolean enabled = true;
+
+        /**
+         * 当前节点 ID，同一集群内必须唯一，默认随机生成
+         */
+        private String nodeId = IdUtil.fastSimpleUUID();
+
+        /**
+         * 上报本地 TopK 以及合并全局 TopK 的周期（秒）
+         */
+        private long syncSeconds = 5;
+
+        /**
+         * 全局热点 Key 的数量
+         */
+        private int topK = 100;
+    }
+
+    @Data
+    public static class Invalidation {
+
+        /**
+         * 是否开启跨节点失效广播
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并广播的周期（毫秒），周期内同一个 Key 的多次修改只广播一次
+         */
+        private long flushMillis = 50;
+
+        /**
+         * 单条广播消息最多携带的 Key 数量
+         */
+        private int maxBatchSize = 500;
+    }
+}
@@ -0,0 +1,34 @@
+package com.shousi.thumbweb.config;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 启动时在平台线程上初始化数据库连接池：HikariDataSource 首次 getConnection 时在 synchronized 中创建连接池，
+ * 如果发生在虚拟线程上会钉住载体线程
+ * <p>
+ * 所有单例创建完成后在启动线程上同步执行，早于定时任务调度（ContextRefreshedEvent）和 Web 服务器启动，
+ * 第一个定时任务或请求到达时连接池已经就绪
+ */
+@Component
+@Slf4j
+public class DataSourceWarmUp implements SmartInitializingSingleton {
+
+    @Resource
+    private DataSource dataSource;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try (Connection ignored = dataSource.getConnection()) {
+            log.info("数据库连接池初始化完成");
+        } catch (SQLException e) {
+            log.warn("数据库连接池预热失败：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.shousi.thumbweb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户级互斥锁配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.lock")
+public class LockProperties {
+
+    /**
+     * 锁模式：local 仅本节点互斥；redis 在本地分段锁之上再获取 Redis 租约，保证多节点互斥
+     */
+    private String mode = "local";
+
+    /**
+     * 本地分段锁数量，向上取整为 2 的幂
+     */
+    private int stripes = 1024;
+
+    /**
+     * 获取锁的最长等待时间（毫秒），超时视为操作过于频繁
+     */
+    private long waitMillis = 3000;
+
+    /**
+     * Redis 租约时长（毫秒），持有者崩溃后租约自动过期
+     */
+    private long leaseMillis = 10000;
+}
@@ -0,0 +1,67 @@
+package com.shousi.thumbweb.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 点赞状态的数值编解码：以十进制 ASCII 存储 Long，不经过 Jackson，也不带类型信息
+ * <p>
+ * 与原先 Jackson 序列化 Long 的结果、Lua 脚本 HSET 的数值完全一致，存量数据无需迁移；
+ * Redis 会把这类纯数字的 field 值按整数编码，比变长二进制更省内存，Lua 中也可以直接 tonumber / HINCRBY
+ */
+public class LongRedisSerializer implements RedisSerializer<Long> {
+
+    public static final LongRedisSerializer INSTANCE = new LongRedisSerializer();
+
+    @Override
+    public byte[] serialize(Long value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        int start = 0;
+        int end = bytes.length;
+        // 兼容以 JSON 字符串形式写入的旧数据，如 "123"
+        if (end - start >= 2 && bytes[start] == '"' && bytes[end - 1] == '"') {
+            start++;
+            end--;
+        }
+        boolean negative = bytes[start] == '-';
+        if (negative) {
+            start++;
+        }
+        if (start >= end || end - start > 19) {
+            throw new SerializationException("无法解析为 Long：" + new String(bytes, StandardCharsets.US_ASCII));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new SerializationException("无法解析为 Long：" + new String(bytes, StandardCharsets.US_ASCII));
+            }
+            value = value * 10 - digit;
+            if (value > 0) {
+                // 溢出
+                throw new SerializationException("无法解析为 Long：" + new String(bytes, StandardCharsets.US_ASCII));
+            }
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw new SerializationException("无法解析为 Long：" + new String(bytes, StandardCharsets.US_ASCII));
+        }
+        return negative ? value : -value;
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return Long.class;
+    }
+}
@@ -0,0 +1,39 @@
+package com.shousi.thumbweb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 点赞 Lua 脚本合并提交配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.redis-batch")
+public class RedisBatchProperties {
+
+    /**
+     * 是否合并提交，关闭后每次点赞单独执行 Lua 脚本
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单批最多合并的操作数
+     */
+    private int maxBatchSize = 128;
+
+    /**
+     * 凑批的最长等待时间（微秒），只在并发较高时等待，低峰期立即提交
+     */
+    private long maxWaitMicros = 200;
+
+    /**
+     * 并行提交的批次数，即提交线程数
+     */
+    private int dispatchers = 2;
+
+    /**
+     * 调用方等待结果的超时时间（毫秒）
+     */
+    private long timeoutMillis = 5000;
+}
@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
@@ -33,6 +34,35 @@ public class RedisConfig {
         return redisTemplate;
     }
 
+    /**
+     * 点赞状态专用：thumb:{userId} 中的点赞记录 ID 与 thumb:temp:* 中的点赞计数都是整数，
+     * 直接以 ASCII 数字读写，避免每次都经过 Jackson 默认类型处理，读出的值也统一为 Long
+     */
+    @Bean
+    public RedisTemplate<String, Long> thumbRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Long> thumbRedisTemplate = new RedisTemplate<>();
+        thumbRedisTemplate.setConnectionFactory(connectionFactory);
+        thumbRedisTemplate.setKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setHashValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.afterPropertiesSet();
+        return thumbRedisTemplate;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        // 不随容器启动，由 RedisListenerStarter 在 Redis 可用时启动并在断开后重试，避免 Redis 不可用时应用无法启动
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     @Bean
     public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
         // 让 spring session 使用 Json方式存储
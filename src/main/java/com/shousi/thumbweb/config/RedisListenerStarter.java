@@ -0,0 +1,35 @@
+package com.shousi.thumbweb.config;
+
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动 Redis pub/sub 监听容器，订阅失败时周期性重试
+ */
+@Component
+@Slf4j
+public class RedisListenerStarter {
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.SECONDS)
+    public void ensureListening() {
+        if (redisMessageListenerContainer.isListening()) {
+            return;
+        }
+        try {
+            // 启动失败后容器仍处于 started 状态，需要先 stop 才能重新订阅
+            redisMessageListenerContainer.stop();
+            redisMessageListenerContainer.start();
+            log.info("Redis 消息监听已启动");
+        } catch (RuntimeException e) {
+            log.warn("Redis 消息监听启动失败，稍后重试：{}", e.getMessage());
+        }
+    }
+}
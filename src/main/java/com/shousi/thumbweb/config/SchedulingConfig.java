@@ -0,0 +1,21 @@
+package com.shousi.thumbweb.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * 开启虚拟线程后 Spring Boot 默认改用 SimpleAsyncTaskScheduler：固定频率的任务每次都在新线程上启动，
+ * 执行时间超过周期时会与自身重叠，固定延迟的任务则共用一个调度线程。
+ * 这里固定使用平台线程池（大小取 spring.task.scheduling.pool.size），固定频率的任务不会与自身重叠，
+ * 耗时的同步任务也不会阻塞失效广播等短周期任务
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.shousi.thumbweb.config;
+
+import org.apache.pulsar.client.api.BatchReceivePolicy;
+import org.apache.pulsar.client.api.ConsumerBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.pulsar.annotation.PulsarListenerConsumerBuilderCustomizer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞事件消费者的批量拉取策略
+ * <p>
+ * 消费者不依赖订阅类型保证同一（用户，博客）的事件顺序，乱序由 ThumbConsumer 按事件时间和 Redis 点赞状态处理
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "thumb.mq", name = "enabled", havingValue = "true")
+public class ThumbConsumerConfig<T> implements PulsarListenerConsumerBuilderCustomizer<T> {
+
+    @Override
+    public void customize(ConsumerBuilder<T> consumerBuilder) {
+        consumerBuilder.batchReceivePolicy(
+                BatchReceivePolicy.builder()
+                        // 每批最多 1000 条
+                        .maxNumMessages(1000)
+                        // 不足 1000 条时最多等待 10 秒
+                        .timeout(10000, TimeUnit.MILLISECONDS)
+                        .build()
+        );
+    }
+}
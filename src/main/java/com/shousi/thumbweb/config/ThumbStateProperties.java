@@ -0,0 +1,25 @@
+package com.shousi.thumbweb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户点赞状态在 Redis 中的存储布局配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.state")
+public class ThumbStateProperties {
+
+    /**
+     * hash：每个用户一个 hash（thumb:{userId}）；bucketed：每个用户按博客 ID 分散到多个小 hash
+     * 切换布局不会迁移已有数据
+     */
+    private String layout = "hash";
+
+    /**
+     * bucketed 布局下每个用户的分桶数，必须是 2 的幂
+     */
+    private int buckets = 16;
+}
@@ -0,0 +1,109 @@
+package com.shousi.thumbweb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 临时点赞数据同步到数据库的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "thumb.sync")
+public class ThumbSyncProperties {
+
+    /**
+     * 每个时间片的临时点赞分片数，按用户 ID 分片，1 表示不分片（thumb:temp:{timeSlice}）
+     * 调整后已写入的旧分片仍由补偿任务同步
+     */
+    private int shards = 8;
+
+    /**
+     * 博客点赞数变化量按博客 ID 分片的 key 数，1 表示不分片（thumb:count:delta）
+     */
+    private int countDeltaShards = 16;
+
+    /**
+     * 并行同步分片的线程数
+     */
+    private int drainThreads = 4;
+
+    /**
+     * 同步时每次 HSCAN 读取并写库的条数，同步占用的内存与单次事务大小都以此为上限
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 批量写库时单条 INSERT / DELETE / UPDATE 语句最多处理的行数
+     */
+    private int dbBatchSize = 500;
+
+    /**
+     * 每次同步除待同步索引中登记的时间片外，再检查上一个及之前的若干时间片，
+     * 滚动升级期间旧版本写入、未登记索引的数据无需等待补偿任务
+     */
+    private int lookbackSlices = 6;
+
+    /**
+     * 多节点分片分工
+     */
+    private Coordinator coordinator = new Coordinator();
+
+    /**
+     * 遗留数据补偿
+     */
+    private Compensator compensator = new Compensator();
+
+    @Data
+    public static class Coordinator {
+
+        /**
+         * 是否开启多节点分工，关闭时本节点同步所有分片
+         */
+        private boolean enabled = true;
+
+        /**
+         * 心跳与重新分配周期（毫秒）
+         */
+        private long heartbeatMillis = 2000;
+
+        /**
+         * 超过该时间未上报心跳的节点视为下线（毫秒）
+         */
+        private long nodeTtlMillis = 6000;
+
+        /**
+         * 分片租约有效期（毫秒），节点异常退出后其他节点最迟在此之后接手
+         */
+        private long leaseMillis = 10000;
+    }
+
+    @Data
+    public static class Compensator {
+
+        /**
+         * 是否开启遗留数据补偿
+         */
+        private boolean enabled = true;
+
+        /**
+         * 两次补偿之间的间隔（毫秒），与 maxKeysPerRun 一起限制补偿速率
+         */
+        private long intervalMillis = 5000;
+
+        /**
+         * 单次 SCAN 的 COUNT，决定每次调用占用 Redis 的时间
+         */
+        private int scanCount = 500;
+
+        /**
+         * 每次补偿最多同步的 key 数
+         */
+        private int maxKeysPerRun = 64;
+
+        /**
+         * 并行同步遗留 key 的线程数
+         */
+        private int threads = 2;
+    }
+}
@@ -0,0 +1,14 @@
+package com.shousi.thumbweb.constant;
+
+public interface BlogConstant {
+
+    /**
+     * 博客列表默认每页条数
+     */
+    int DEFAULT_PAGE_SIZE = 10;
+
+    /**
+     * 博客列表每页最大条数，超出时按最大条数返回
+     */
+    int MAX_PAGE_SIZE = 50;
+}
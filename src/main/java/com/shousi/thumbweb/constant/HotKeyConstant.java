@@ -0,0 +1,29 @@
+package com.shousi.thumbweb.constant;
+
+public interface HotKeyConstant {
+
+    /**
+     * 各节点上报的本地 TopK 快照，hash：热点 Key -> 计数
+     */
+    String NODE_SNAPSHOT_KEY_PREFIX = "hotkey:node:";
+
+    /**
+     * 存活节点，zset：节点 ID -> 最近一次上报时间
+     */
+    String NODES_KEY = "hotkey:nodes";
+
+    /**
+     * 负责合并全局 TopK 的节点租约
+     */
+    String MERGER_LEASE_KEY = "hotkey:merger";
+
+    /**
+     * 广播全局热点 Key 的频道
+     */
+    String GLOBAL_HOT_KEY_CHANNEL = "hotkey:global";
+
+    /**
+     * 广播本地缓存失效的频道
+     */
+    String CACHE_INVALIDATION_CHANNEL = "cache:invalidate";
+}
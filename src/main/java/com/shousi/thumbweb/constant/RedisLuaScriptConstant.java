@@ -3,82 +3,67 @@ package com.shousi.thumbweb.constant;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 
+import java.util.List;
+
 public interface RedisLuaScriptConstant {
 
     /**
-     * 点赞 Lua 脚本
-     * KEYS[1]       -- 临时计数键
-     * KEYS[2]       -- 用户点赞状态键
-     * ARGV[1]       -- 用户 ID
-     * ARGV[2]       -- 博客 ID
-     * 返回:
-     * -1: 已点赞
+     * 批量点赞 / 取消点赞 Lua 脚本，一次调用处理多个（用户，博客），逐项返回结果
+     * KEYS[4i - 3]  -- 第 i 项的临时计数键（用户所在分片）
+     * KEYS[4i - 2]  -- 第 i 项的用户点赞状态键
+     * KEYS[4i - 1]  -- 第 i 项的博客点赞数变化量键（博客所在分片），记录尚未同步到数据库的变化
+     * KEYS[4i]      -- 第 i 项临时计数键所在分片的待同步时间片索引
+     * ARGV[1]       -- 当前时间片开始的时间戳（秒），作为时间片在索引中的分数
+     * ARGV[3i - 1]  -- 第 i 项的操作：1 点赞，-1 取消点赞
+     * ARGV[3i]      -- 第 i 项的用户 ID
+     * ARGV[3i + 1]  -- 第 i 项的博客 ID
+     * 返回：与各项一一对应的数组
+     * -1: 已点赞（点赞时）/ 未点赞（取消点赞时）
      * 1: 操作成功
      */
-    public static final RedisScript<Long> THUMB_SCRIPT = new DefaultRedisScript<>("""
-            local tempThumbKey = KEYS[1]        -- 临时计数键（如 thumb:temp:{timeSlice}）
-            local userThumbKey = KEYS[2]        -- 用户点赞状态键
-            local userId = ARGV[1]
-            local blogId = ARGV[2]
-                        
-            -- 1.检查用户是否点赞
-            if redis.call('HEXISTS', userThumbKey, blogId) == 1 then
-                return -1   -- 已点赞，返回 -1 表示失败
-            end
-                        
-            -- 2.获取旧值（不存在则默认为 0）
-            local hashKey = userId .. ':' .. blogId
-            local oldNumber = tonumber(redis.call('HGET', tempThumbKey, hashKey) or 0)
-                        
-            -- 3.计算新值
-            local newNumber = oldNumber + 1
-                        
-            -- 4.原子性更新：写入临时计数 + 标记用户已点赞
-            redis.call('HSET', tempThumbKey, hashKey, newNumber)
-            redis.call('HSET', userThumbKey, blogId, 1)
-                        
-            -- 5.返回 1 表示成功
-            return 1
-            """, Long.class);
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> THUMB_BATCH_SCRIPT = new DefaultRedisScript<>("""
+            local results = {}
+            for i = 1, #KEYS / 4 do
+                local tempThumbKey = KEYS[i * 4 - 3]
+                local userThumbKey = KEYS[i * 4 - 2]
+                local countDeltaKey = KEYS[i * 4 - 1]
+                local pendingKey = KEYS[i * 4]
+                local offset = (i - 1) * 3 + 1
+                local action = tonumber(ARGV[offset + 1])
+                local userId = ARGV[offset + 2]
+                local blogId = ARGV[offset + 3]
 
-    /**
-     * 取消点赞 Lua 脚本
-     * KEYS[1]       -- 临时计数键
-     * KEYS[2]       -- 用户点赞状态键
-     * ARGV[1]       -- 用户 ID
-     * ARGV[2]       -- 博客 ID
-     * 返回：
-     * -1: 未点赞
-     * 1: 操作成功
-     */
-    public static final RedisScript<Long> UNTHUMB_SCRIPT = new DefaultRedisScript<>("""  
-            local tempThumbKey = KEYS[1]      -- 临时计数键（如 thumb:temp:{timeSlice}）  
-            local userThumbKey = KEYS[2]      -- 用户点赞状态键（如 thumb:{userId}）  
-            local userId = ARGV[1]            -- 用户 ID  
-            local blogId = ARGV[2]            -- 博客 ID  
-              
-            -- 1. 检查用户是否已点赞（若未点赞，直接返回失败）  
-            if redis.call('HEXISTS', userThumbKey, blogId) ~= 1 then  
-                return -1  -- 未点赞，返回 -1 表示失败  
-            end  
-              
-            -- 2. 获取当前临时计数（若不存在则默认为 0）  
-            local hashKey = userId .. ':' .. blogId  
-            local oldNumber = tonumber(redis.call('HGET', tempThumbKey, hashKey) or 0)  
-              
-            -- 3. 计算新值并更新  
-            local newNumber = oldNumber - 1  
-              
-            -- 4. 原子性操作：更新临时计数 + 删除用户点赞标记  
-            redis.call('HSET', tempThumbKey, hashKey, newNumber)  
-            redis.call('HDEL', userThumbKey, blogId)  
-              
-            return 1  -- 返回 1 表示成功  
-            """, Long.class);
+                -- 1.检查点赞状态，重复点赞或未点赞时取消均失败
+                local thumbed = redis.call('HEXISTS', userThumbKey, blogId) == 1
+                if (action == 1 and thumbed) or (action == -1 and not thumbed) then
+                    results[i] = -1
+                else
+                    -- 2.更新临时计数，登记待同步的时间片
+                    local hashKey = userId .. ':' .. blogId
+                    local oldNumber = tonumber(redis.call('HGET', tempThumbKey, hashKey) or 0)
+                    redis.call('HSET', tempThumbKey, hashKey, oldNumber + action)
+                    redis.call('ZADD', pendingKey, 'NX', ARGV[1], tempThumbKey)
+
+                    -- 3.更新用户点赞状态
+                    if action == 1 then
+                        redis.call('HSET', userThumbKey, blogId, 1)
+                    else
+                        redis.call('HDEL', userThumbKey, blogId)
+                    end
+
+                    -- 4.更新博客点赞数变化量
+                    redis.call('HINCRBY', countDeltaKey, blogId, action)
+                    results[i] = 1
+                end
+            end
+            return results
+            """, List.class);
 
     /**
      * 点赞 Lua 脚本
      * KEYS[1]       -- 用户点赞状态键
+     * KEYS[2]       -- 博客点赞数变化量键（博客所在分片），写库后由消费者扣除
      * ARGV[1]       -- 博客 ID
      * 返回:
      * -1: 已点赞
@@ -95,12 +80,14 @@ public interface RedisLuaScriptConstant {
               
                     -- 没有点赞的话，添加点赞记录  
                     redis.call("HSET", userThumbKey, blogId, 1)  
+                    redis.call("HINCRBY", KEYS[2], blogId, 1)
                     return 1  
             """, Long.class);
 
     /**
      * 取消点赞 Lua 脚本
      * KEYS[1]       -- 用户点赞状态键
+     * KEYS[2]       -- 博客点赞数变化量键（博客所在分片），写库后由消费者扣除
      * ARGV[1]       -- 博客 ID
      * 返回:
      * -1: 已点赞
@@ -117,7 +104,191 @@ public interface RedisLuaScriptConstant {
               
             -- 点赞了的话，删除点赞记录  
             redis.call("HDEL", userThumbKey, blogId)  
+            redis.call("HINCRBY", KEYS[2], blogId, -1)
             return 1  
             """, Long.class);
 
+    /**
+     * 批量点赞 / 取消点赞 Lua 脚本（消息队列版本），维护点赞状态与博客点赞数变化量
+     * KEYS[2i - 1]  -- 第 i 项的用户点赞状态键
+     * KEYS[2i]      -- 第 i 项的博客点赞数变化量键（博客所在分片）
+     * ARGV[2i - 1]  -- 第 i 项的操作：1 点赞，-1 取消点赞
+     * ARGV[2i]      -- 第 i 项的博客 ID
+     * 返回：与各项一一对应的数组
+     * -1: 已点赞（点赞时）/ 未点赞（取消点赞时）
+     * 1: 操作成功
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> THUMB_BATCH_SCRIPT_MQ = new DefaultRedisScript<>("""
+            local results = {}
+            for i = 1, #KEYS / 2 do
+                local userThumbKey = KEYS[i * 2 - 1]
+                local action = tonumber(ARGV[i * 2 - 1])
+                local blogId = ARGV[i * 2]
+                local thumbed = redis.call('HEXISTS', userThumbKey, blogId) == 1
+                if (action == 1 and thumbed) or (action == -1 and not thumbed) then
+                    results[i] = -1
+                else
+                    if action == 1 then
+                        redis.call('HSET', userThumbKey, blogId, 1)
+                    else
+                        redis.call('HDEL', userThumbKey, blogId)
+                    end
+                    redis.call('HINCRBY', KEYS[i * 2], blogId, action)
+                    results[i] = 1
+                end
+            end
+            return results
+            """, List.class);
+
+    /**
+     * 跨多个 hash 批量读取 Lua 脚本，一次调用完成多个 HMGET
+     * KEYS[k]              -- 第 k 个 hash
+     * ARGV[k]              -- 第 k 个 hash 读取的 field 数
+     * ARGV[#KEYS + 1 ...]  -- 各 hash 的 field，按 KEYS 顺序依次排列
+     * 返回：所有 field 的值，顺序与 ARGV 中的 field 一致，不存在为 nil
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> MULTI_HMGET_SCRIPT = new DefaultRedisScript<>("""
+            local results = {}
+            local offset = #KEYS
+            for k = 1, #KEYS do
+                local count = tonumber(ARGV[k])
+                local values = redis.call('HMGET', KEYS[k], unpack(ARGV, offset + 1, offset + count))
+                for j = 1, count do
+                    results[#results + 1] = values[j]
+                end
+                offset = offset + count
+            end
+            return results
+            """, List.class);
+
+    /**
+     * 释放用户锁租约 Lua 脚本，只删除自己持有的租约
+     * KEYS[1]       -- 租约键
+     * ARGV[1]       -- 持有者 token
+     * 返回:
+     * 1: 释放成功
+     * 0: 租约已过期或被他人持有
+     */
+    public static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 获取或续期租约 Lua 脚本
+     * KEYS[1]       -- 租约键
+     * ARGV[1]       -- 持有者 ID
+     * ARGV[2]       -- 有效期（毫秒）
+     * 返回:
+     * 1: 获取或续期成功
+     * 0: 租约被他人持有
+     */
+    public static final RedisScript<Long> ACQUIRE_LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local owner = redis.call('GET', KEYS[1])
+            if not owner then
+                redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+                return 1
+            end
+            if owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 认领临时点赞记录 Lua 脚本，把临时 key RENAME 为同步中 key，之后的写入落到新的临时 key，互不干扰；
+     * 两个 key 都已不存在时时间片同步完成，从待同步时间片索引中移除
+     * KEYS[1]       -- 临时点赞记录 key
+     * KEYS[2]       -- 同步中 key
+     * KEYS[3]       -- 所在分片的待同步时间片索引
+     * 返回:
+     * 2: 上次同步中断，同步中 key 仍有数据，先继续处理
+     * 1: 认领成功
+     * 0: 没有需要同步的数据
+     */
+    public static final RedisScript<Long> CLAIM_TEMP_THUMB_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+                return 2
+            end
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('RENAME', KEYS[1], KEYS[2])
+                return 1
+            end
+            redis.call('ZREM', KEYS[3], KEYS[1])
+            return 0
+            """, Long.class);
+
+    /**
+     * 一块临时点赞数据写库提交后调用：逐个删除已写库的字段，删除成功的字段从博客点赞数变化量中扣除自己的计数，
+     * 同一块被重复同步时已删除的字段不会再次扣除
+     * KEYS[1]           -- 同步中 key
+     * KEYS[i + 1]       -- 第 i 个字段所属博客的点赞数变化量键（博客所在分片）
+     * ARGV[i]           -- 第 i 个已写库的字段（userId:blogId）
+     * 返回：删除的字段数
+     */
+    public static final RedisScript<Long> CONSUME_TEMP_THUMB_SCRIPT = new DefaultRedisScript<>("""
+            local deleted = 0
+            for i = 1, #ARGV do
+                local field = ARGV[i]
+                local count = tonumber(redis.call('HGET', KEYS[1], field))
+                if count then
+                    redis.call('HDEL', KEYS[1], field)
+                    deleted = deleted + 1
+                    if count ~= 0 then
+                        local blogId = string.match(field, ':(%d+)$')
+                        if redis.call('HINCRBY', KEYS[i + 1], blogId, -count) == 0 then
+                            redis.call('HDEL', KEYS[i + 1], blogId)
+                        end
+                    end
+                end
+            end
+            return deleted
+            """, Long.class);
+
+    /**
+     * 点赞事件写库提交后调用：逐条事件扣除自己对博客点赞数变化量的计数，变化量归零时删除字段；
+     * 扣除时以 SET NX 写入事件的已扣除标记，重复投递的事件不会再次扣除
+     * KEYS[2k - 1]      -- 第 k 条事件的已扣除标记键
+     * KEYS[2k]          -- 第 k 条事件所属博客的点赞数变化量键（博客所在分片）
+     * ARGV[1]           -- 已扣除标记有效期（秒）
+     * ARGV[2k]          -- 第 k 条事件的博客 ID
+     * ARGV[2k + 1]      -- 第 k 条事件的变化：1 点赞，-1 取消点赞
+     * 返回：本次扣除的事件数
+     */
+    public static final RedisScript<Long> SUBTRACT_THUMB_COUNT_DELTA_SCRIPT = new DefaultRedisScript<>("""
+            local applied = 0
+            for k = 1, #KEYS / 2 do
+                if redis.call('SET', KEYS[k * 2 - 1], 1, 'NX', 'EX', ARGV[1]) then
+                    local blogId = ARGV[k * 2]
+                    if redis.call('HINCRBY', KEYS[k * 2], blogId, -tonumber(ARGV[k * 2 + 1])) == 0 then
+                        redis.call('HDEL', KEYS[k * 2], blogId)
+                    end
+                    applied = applied + 1
+                end
+            end
+            return applied
+            """, Long.class);
+
+    /**
+     * 原子替换节点的热点快照并设置过期时间，合并节点不会读到删除后、写入前的空快照
+     * KEYS[1]       -- 节点快照键
+     * ARGV[1]       -- 有效期（毫秒）
+     * ARGV[2 ...]   -- 热点 Key 与计数交替排列
+     * 返回：写入的热点 Key 数
+     */
+    public static final RedisScript<Long> REPLACE_HOT_KEY_SNAPSHOT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('DEL', KEYS[1])
+            if #ARGV < 3 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], unpack(ARGV, 2, #ARGV))
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return (#ARGV - 1) / 2
+            """, Long.class);
+
 }
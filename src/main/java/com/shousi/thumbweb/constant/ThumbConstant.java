@@ -6,5 +6,67 @@ public interface ThumbConstant {
 
     String TEMP_THUMB_KEY_PREFIX = "thumb:temp:%s";
 
+    /**
+     * 博客点赞数变化量，hash：博客 ID -> 尚未同步到数据库的点赞数变化，
+     * 按博客 ID 分片为 thumb:count:delta:{shard}，避免所有点赞集中写一个热点 key
+     */
+    String BLOG_THUMB_COUNT_DELTA_KEY = "thumb:count:delta";
+
+    /**
+     * 同步中的临时点赞记录 key 后缀，同步前把临时 key RENAME 为处理中 key
+     */
+    String PROCESSING_KEY_SUFFIX = ":processing";
+
     Long UN_THUMB_CONSTANT = 0L;
+
+    /**
+     * 用户锁租约
+     */
+    String USER_LOCK_KEY_PREFIX = "lock:thumb:";
+
+    /**
+     * 参与点赞同步的存活节点，zset：节点 ID -> 最近一次心跳时间
+     */
+    String SYNC_NODES_KEY = "thumb:sync:nodes";
+
+    /**
+     * 点赞同步分片租约
+     */
+    String SYNC_LEASE_KEY_PREFIX = "thumb:sync:lease:";
+
+    /**
+     * 待同步时间片索引，zset：临时点赞记录 key -> 时间片开始的时间戳（秒），按分片区分；
+     * 点赞脚本写入临时 key 时登记，时间片同步完成时移除
+     */
+    String SYNC_PENDING_KEY_PREFIX = "thumb:sync:pending:";
+
+    /**
+     * 补偿任务 SCAN 游标检查点，按分片区分，分片换主或节点重启后由新的负责节点继续
+     */
+    String SYNC_CURSOR_KEY_PREFIX = "thumb:sync:cursor:";
+
+    /**
+     * 点赞事件 topic
+     */
+    String THUMB_TOPIC = "thumb-topic";
+
+    /**
+     * 点赞事件订阅名
+     */
+    String THUMB_SUBSCRIPTION = "thumb-subscription";
+
+    /**
+     * 点赞事件已扣除博客点赞数变化量的标记，按消息 ID 区分，重复投递时不再扣除
+     */
+    String THUMB_EVENT_APPLIED_KEY_PREFIX = "thumb:mq:applied:";
+
+    /**
+     * 已扣除标记的有效期（秒），需长于消息重新投递的最长间隔
+     */
+    long THUMB_EVENT_APPLIED_TTL_SECONDS = 24 * 60 * 60;
+
+    /**
+     * 批量点赞单次最多操作数
+     */
+    int BATCH_THUMB_MAX_SIZE = 100;
 }
@@ -1,7 +1,8 @@
 package com.shousi.thumbweb.controller;
 
 import com.shousi.thumbweb.common.BaseResponse;
-import com.shousi.thumbweb.model.entity.Blog;
+import com.shousi.thumbweb.model.dto.blog.BlogQueryRequest;
+import com.shousi.thumbweb.model.vo.BlogPageVO;
 import com.shousi.thumbweb.model.vo.BlogVO;
 import com.shousi.thumbweb.service.BlogService;
 import com.shousi.thumbweb.util.ResultUtils;
@@ -11,8 +12,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("blog")
 public class BlogController {  
@@ -26,9 +25,8 @@ public class BlogController {
     }
 
     @GetMapping("/list")
-    public BaseResponse<List<BlogVO>> list(HttpServletRequest request) {
-        List<Blog> blogList = blogService.list();
-        List<BlogVO> blogVOList = blogService.getBlogVOList(blogList, request);
-        return ResultUtils.success(blogVOList);
+    public BaseResponse<BlogPageVO> list(BlogQueryRequest blogQueryRequest, HttpServletRequest request) {
+        BlogPageVO blogPageVO = blogService.listBlogVOByCursor(blogQueryRequest, request);
+        return ResultUtils.success(blogPageVO);
     }
 }
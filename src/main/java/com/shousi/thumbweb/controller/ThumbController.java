@@ -1,7 +1,9 @@
 package com.shousi.thumbweb.controller;
 
 import com.shousi.thumbweb.common.BaseResponse;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
 import com.shousi.thumbweb.model.dto.thumb.DoThumbRequest;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
 import com.shousi.thumbweb.service.ThumbService;
 import com.shousi.thumbweb.util.ResultUtils;
 import jakarta.annotation.Resource;
@@ -11,6 +13,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("thumb")
 public class ThumbController {
@@ -28,4 +32,10 @@ public class ThumbController {
         Boolean success = thumbService.undoThumb(doThumbRequest, request);
         return ResultUtils.success(success);
     }
+
+    @PostMapping("/batch")
+    public BaseResponse<List<ThumbResultVO>> batchThumb(@RequestBody BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<ThumbResultVO> results = thumbService.batchThumb(batchThumbRequest, request);
+        return ResultUtils.success(results);
+    }
 }
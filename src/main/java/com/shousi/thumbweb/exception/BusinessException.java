@@ -0,0 +1,25 @@
+package com.shousi.thumbweb.exception;
+
+import com.shousi.thumbweb.common.ErrorCode;
+import lombok.Getter;
+
+/**
+ * 携带错误码的业务异常，由全局异常处理器按错误码返回
+ */
+@Getter
+public class BusinessException extends RuntimeException {
+
+    /**
+     * 错误码
+     */
+    private final ErrorCode errorCode;
+
+    public BusinessException(ErrorCode errorCode) {
+        this(errorCode, errorCode.getMessage());
+    }
+
+    public BusinessException(ErrorCode errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+}
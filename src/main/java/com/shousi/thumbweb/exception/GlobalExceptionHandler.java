@@ -19,6 +19,12 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
  @Hidden
  public class GlobalExceptionHandler {
  
+     @ExceptionHandler(BusinessException.class)
+     public BaseResponse<?> businessExceptionHandler(BusinessException e) {
+         log.error(e.getMessage(), e);
+         return ResultUtils.error(e.getErrorCode(), e.getMessage());
+     }
+
      @ExceptionHandler(RuntimeException.class)
      public BaseResponse<?> runtimeExceptionHandler(RuntimeException e) {
          log.error(e.getMessage(), e);
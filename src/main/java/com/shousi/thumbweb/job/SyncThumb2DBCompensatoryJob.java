@@ -1,44 +1,167 @@
 package com.shousi.thumbweb.job;
 
-import cn.hutool.core.collection.CollUtil;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.manager.sync.ThumbSyncCoordinator;
 import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 补偿任务：同步定时任务遗留在 Redis 中的临时点赞数据（同步失败、节点下线、分片换主等）
+ * <p>
+ * 以 SCAN 游标增量扫描代替 KEYS，每次调用只遍历 scanCount 个槽位，不会长时间阻塞 Redis；
+ * 每次补偿轮流处理本节点负责的一个分片，游标按分片保存在 Redis 中，
+ * 节点重启或分片换主后由新的负责节点从检查点继续，遗留 key 同步完成后才推进检查点。
+ * 每隔 intervalMillis 最多同步 maxKeysPerRun 个 key，在独立的有界线程池上执行。
+ * 已登记在待同步索引中的时间片由定时任务按先后顺序同步，补偿任务只处理未登记的 key（如升级前写入的数据）。
+ * SCAN 返回的 key 无序，交给 SyncThumb2DBJob 按分片分组、组内按时间片从早到晚串行同步，
+ * 并与定时任务共用分片锁，不会与定时任务的回看同时同步同一分片
+ */
 @Component
 @Slf4j
 public class SyncThumb2DBCompensatoryJob {
 
+    private static final String SCAN_START = "0";
+
+    private static final byte[] MATCH = "MATCH".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 检查点过期时间，分片数调小后不再使用的检查点自动清理
+     */
+    private static final Duration CURSOR_TTL = Duration.ofDays(1);
+
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
     @Resource
     private SyncThumb2DBJob syncThumb2DBJob;
 
-    @Scheduled(cron = "0 0 2 * * *")
+    @Resource
+    private ThumbSyncCoordinator thumbSyncCoordinator;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    private ExecutorService compensateExecutor;
+
+    /**
+     * 下一次补偿从该分片开始查找本节点负责的分片
+     */
+    private int nextShard;
+
+    @PostConstruct
+    public void init() {
+        compensateExecutor = Executors.newFixedThreadPool(thumbSyncProperties.getCompensator().getThreads(),
+                Thread.ofPlatform().name("thumb-compensate-", 0).daemon().priority(Thread.MIN_PRIORITY).factory());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        compensateExecutor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${thumb.sync.compensator.interval-millis:5000}", timeUnit = TimeUnit.MILLISECONDS)
     public void run() {
-        log.info("补偿任务：将 Redis中的临时点赞数据同步到数据库");
-        Set<String> thumbKeys = redisTemplate.keys(RedisKeyUtil.getTempThumbKey("") + "*");
-        Set<String> needHandleDataSet = new HashSet<>();
-        thumbKeys.stream()
-                .filter(Objects::nonNull)
-                .forEach(thumbKey -> needHandleDataSet.add(thumbKey.replace(RedisKeyUtil.getTempThumbKey(""), "")));
-
-        if (CollUtil.isEmpty(needHandleDataSet)) {
-            log.info("补偿任务：暂无需要处理的数据");
+        ThumbSyncProperties.Compensator compensator = thumbSyncProperties.getCompensator();
+        if (!compensator.isEnabled()) {
+            return;
+        }
+        Integer shard = nextOwnedShard();
+        if (shard == null) {
             return;
         }
-        for (String timeSlice : needHandleDataSet) {
-            syncThumb2DBJob.syncThumb2DBByDate(timeSlice);
-            log.info("补偿任务：同步完成，当前时间片：{}", timeSlice);
+        String cursorKey = RedisKeyUtil.getSyncCursorKey(shard);
+        String checkpoint = stringRedisTemplate.opsForValue().get(cursorKey);
+        String cursor = checkpoint == null ? SCAN_START : checkpoint;
+        Set<String> backlogKeys = new LinkedHashSet<>();
+        do {
+            ScanPage page = scan(cursor, compensator.getScanCount());
+            cursor = page.cursor();
+            // 同步中断遗留的同步中 key 按原 key 处理，认领时会先继续处理它
+            page.keys().stream()
+                    .filter(key -> isBacklog(key, shard))
+                    .map(RedisKeyUtil::stripProcessingSuffix)
+                    .forEach(backlogKeys::add);
+        } while (!SCAN_START.equals(cursor) && backlogKeys.size() < compensator.getMaxKeysPerRun());
+
+        if (!backlogKeys.isEmpty()) {
+            log.info("补偿任务：同步 {} 号分片 {} 个遗留的临时点赞 key", shard, backlogKeys.size());
+            syncThumb2DBJob.syncTempThumbKeys(backlogKeys, compensateExecutor);
+        }
+        // 同步完成后再推进检查点，中途宕机或关闭时重新扫描这一段
+        if (syncThumb2DBJob.isStopping()) {
+            return;
+        }
+        stringRedisTemplate.opsForValue().set(cursorKey, cursor, CURSOR_TTL);
+        if (SCAN_START.equals(cursor)) {
+            log.debug("补偿任务：{} 号分片完成一轮扫描", shard);
+        }
+    }
+
+    /**
+     * 轮到的下一个本节点负责的分片，没有负责的分片时返回 null
+     */
+    private Integer nextOwnedShard() {
+        int shards = thumbSyncProperties.getShards();
+        for (int i = 0; i < shards; i++) {
+            int shard = (nextShard + i) % shards;
+            if (thumbSyncCoordinator.owns(shard)) {
+                nextShard = shard + 1;
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 属于指定分片、已超出定时任务回看范围且未登记待同步索引的时间片才由补偿任务同步，避免与定时任务重复处理；
+     * 分片数调小前写入的 key 按调整后的分片归属
+     */
+    private boolean isBacklog(String tempThumbKey, int shard) {
+        try {
+            int age = SyncThumb2DBJob.getSliceAge(tempThumbKey, LocalTime.now().toSecondOfDay());
+            return age >= (thumbSyncProperties.getLookbackSlices() + 2) * 10
+                    && Math.floorMod(RedisKeyUtil.parseTempThumbShard(tempThumbKey), thumbSyncProperties.getShards()) == shard
+                    && !isPending(RedisKeyUtil.stripProcessingSuffix(tempThumbKey));
+        } catch (RuntimeException e) {
+            log.warn("补偿任务：忽略无法识别的 key {}", tempThumbKey);
+            return false;
         }
-        log.info("补偿任务：同步完成");
+    }
+
+    private boolean isPending(String tempThumbKey) {
+        String pendingKey = RedisKeyUtil.getSyncPendingKey(RedisKeyUtil.parseTempThumbShard(tempThumbKey));
+        return stringRedisTemplate.opsForZSet().score(pendingKey, tempThumbKey) != null;
+    }
+
+    private ScanPage scan(String cursor, int count) {
+        byte[] pattern = (RedisKeyUtil.getTempThumbKey("") + "*").getBytes(StandardCharsets.UTF_8);
+        List<?> result = (List<?>) stringRedisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("SCAN",
+                cursor.getBytes(StandardCharsets.UTF_8), MATCH, pattern, COUNT, String.valueOf(count).getBytes(StandardCharsets.UTF_8)));
+        List<String> keys = ((List<?>) result.get(1)).stream()
+                .map(key -> new String((byte[]) key, StandardCharsets.UTF_8))
+                .toList();
+        return new ScanPage(new String((byte[]) result.get(0), StandardCharsets.UTF_8), keys);
+    }
+
+    private record ScanPage(String cursor, List<String> keys) {
     }
 }
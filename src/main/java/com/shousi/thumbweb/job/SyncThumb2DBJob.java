@@ -1,113 +1,337 @@
 package com.shousi.thumbweb.job;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.text.StrPool;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.shousi.thumbweb.mapper.BlogMapper;
-import com.shousi.thumbweb.model.entity.Thumb;
-import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
-import com.shousi.thumbweb.service.ThumbService;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.manager.sync.ThumbSyncCoordinator;
 import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * 定时任务：将 Redis中的临时点赞数据同步到数据库
+ * <p>
+ * 每个时间片按用户 ID 分为多个分片 key，多节点部署时由 ThumbSyncCoordinator 把分片分给各节点，
+ * 节点只同步自己负责的分片，各分片在有界线程池上并行同步，
+ * 每个分片先 RENAME 认领为同步中 key，再按块流式读取，每块独立事务写库、提交后删除，
+ * 重放已提交的块不会重复写入，失败的分片在之后的回看或补偿中直接重试。
+ * <p>
+ * 同一用户的点赞和取消点赞可能落在同一分片的不同时间片中，写库结果依赖先后顺序，
+ * 因此同一分片的多个时间片按时间从早到晚串行同步，某个时间片失败时不再同步该分片之后的时间片。
+ * 点赞脚本把写入的时间片登记到分片的待同步索引中，时间片同步完成时才移除，
+ * 每次同步取出分片中所有待同步的时间片，数据库长时间不可用后恢复时也从最早的时间片开始，不会越过遗留的旧时间片
  */
 @Component
 @Slf4j
 public class SyncThumb2DBJob {
 
     @Resource
-    private ThumbService thumbService;
+    private ThumbSyncWriter thumbSyncWriter;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, Long> thumbRedisTemplate;
 
     @Resource
-    private BlogMapper blogMapper;
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @Resource
+    private ThumbSyncCoordinator thumbSyncCoordinator;
+
+    private ExecutorService drainExecutor;
+
+    /**
+     * 应用关闭中：正在写库的一块数据照常提交，不再认领新的 key 和读取新的块，剩余数据留在 Redis 中等待下次同步
+     */
+    private volatile boolean stopping;
+
+    /**
+     * 定时同步正在执行，执行时间超过周期时跳过本轮，避免两轮同时认领同一个同步中 key
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 分片锁：定时任务与补偿任务在各自的线程池上同步，同一分片同一时刻只由一方按顺序同步
+     */
+    private final Map<Integer, ReentrantLock> shardLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        drainExecutor = Executors.newFixedThreadPool(thumbSyncProperties.getDrainThreads(),
+                Thread.ofPlatform().name("thumb-sync-", 0).daemon().factory());
+    }
+
+    /**
+     * 关闭事件先于定时任务线程池停止，线程池停止时会等待正在执行的同步，这里让同步尽快结束
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        stopping = true;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        drainExecutor.shutdown();
+    }
+
+    /**
+     * 应用是否正在关闭，补偿任务据此判断本轮是否同步完整
+     *
+     * @return
+     */
+    public boolean isStopping() {
+        return stopping;
+    }
 
     @Scheduled(fixedRate = 10000)
-    @Transactional(rollbackFor = Exception.class)
     public void run() {
-        log.info("定时任务：将 Redis中的临时点赞数据同步到数据库");
-        DateTime nowDate = DateUtil.date();
-        // 如果秒数为0~9 则回到上一分钟的50秒
-        int second = (DateUtil.second(nowDate) / 10 - 1) * 10;
-        if (second == -10) {
-            second = 50;
-            // 回到上一分钟
-            nowDate = DateUtil.offsetMinute(nowDate, -1);
+        if (!running.compareAndSet(false, true)) {
+            log.warn("上一轮同步尚未完成，跳过本轮");
+            return;
+        }
+        try {
+            log.info("定时任务：将 Redis中的临时点赞数据同步到数据库");
+            DateTime nowDate = DateUtil.date();
+            // 本节点负责的分片中，当前时间片之前所有待同步的时间片
+            Set<String> tempThumbKeys = new LinkedHashSet<>(getPendingTempThumbKeys(RedisKeyUtil.getTimeSliceEpochSecond(nowDate) - 10));
+            // 上一个时间片，以及之前 lookbackSlices 个时间片中遗留的数据，包括滚动升级期间旧版本写入、未登记索引的 key
+            for (int i = 1; i <= thumbSyncProperties.getLookbackSlices() + 1; i++) {
+                tempThumbKeys.addAll(getTempThumbKeys(RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(nowDate, -10 * i))));
+            }
+            syncTempThumbKeys(tempThumbKeys);
+            log.info("同步完成，当前时间片：{}", RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(nowDate, -10)));
+        } finally {
+            running.set(false);
         }
-        String timeSlice = DateUtil.format(nowDate, "HH:mm:") + second;
-        syncThumb2DBByDate(timeSlice);
-        log.info("同步完成，当前时间片：{}", timeSlice);
     }
 
+    /**
+     * 同步一个时间片的所有分片，以及分片前写入的不分片 key
+     *
+     * @param timeSlice
+     */
     public void syncThumb2DBByDate(String timeSlice) {
-        // 获取到临时点赞和取消点赞数据
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
-        Map<Object, Object> allTempThumbMap = redisTemplate.opsForHash().entries(tempThumbKey);
-        boolean thumbMapEntry = CollUtil.isEmpty(allTempThumbMap);
+        syncTempThumbKeys(getTempThumbKeys(timeSlice));
+    }
 
-        // 同步点赞到数据库
-        if (thumbMapEntry) {
-            return;
+    /**
+     * 本节点负责的分片中，不晚于指定时间片的待同步临时点赞 key
+     *
+     * @param maxEpochSecond 时间片开始的时间戳（秒）
+     * @return
+     */
+    private Set<String> getPendingTempThumbKeys(long maxEpochSecond) {
+        Set<String> tempThumbKeys = new LinkedHashSet<>();
+        for (int shard = 0; shard < thumbSyncProperties.getShards(); shard++) {
+            if (thumbSyncCoordinator.owns(shard)) {
+                Set<String> pendingKeys = stringRedisTemplate.opsForZSet().rangeByScore(RedisKeyUtil.getSyncPendingKey(shard), 0, maxEpochSecond);
+                if (pendingKeys != null) {
+                    tempThumbKeys.addAll(pendingKeys);
+                }
+            }
         }
-        // 统计博客点赞数量
-        Map<Long, Long> blogThumbCountMap = new HashMap<>();
-        // 批量插入点赞记录 列表
-        ArrayList<Thumb> thumbList = new ArrayList<>();
-        LambdaQueryWrapper<Thumb> queryWrapper = new LambdaQueryWrapper<>();
-        boolean needRemove = false;
-        for (Object userIdBlogIdObj : allTempThumbMap.keySet()) {
-            String userIdBlogId = userIdBlogIdObj.toString();
-            String[] split = userIdBlogId.split(StrPool.COLON);
-            Long userId = Long.valueOf(split[0]);
-            Long blogId = Long.valueOf(split[1]);
-            // -1:取消点赞  1:点赞
-            Integer thumbType = Integer.valueOf(allTempThumbMap.get(userIdBlogId).toString());
-            if (thumbType == ThumbTypeEnum.INCR.getValue()) {
-                Thumb thumb = new Thumb();
-                thumb.setUserId(userId);
-                thumb.setBlogId(blogId);
-                thumbList.add(thumb);
-            } else if (thumbType == ThumbTypeEnum.DECR.getValue()) {
-                // 批量删除
-                needRemove = true;
-                queryWrapper.or().eq(Thumb::getUserId, userId).eq(Thumb::getBlogId, blogId);
-            } else {
-                if (thumbType != ThumbTypeEnum.NON.getValue()) {
-                    log.warn("点赞类型错误：{}", thumbType);
+        return tempThumbKeys;
+    }
+
+    private Set<String> getTempThumbKeys(String timeSlice) {
+        int shards = thumbSyncProperties.getShards();
+        Set<String> tempThumbKeys = new LinkedHashSet<>();
+        for (int shard = 0; shard < shards; shard++) {
+            tempThumbKeys.add(RedisKeyUtil.getTempThumbKey(timeSlice, shard, shards));
+        }
+        tempThumbKeys.add(RedisKeyUtil.getTempThumbKey(timeSlice));
+        return tempThumbKeys;
+    }
+
+    /**
+     * 同步多个临时点赞 key 中由本节点负责的部分，不同分片并行、同一分片按时间片先后串行，等待全部完成
+     *
+     * @param tempThumbKeys
+     */
+    public void syncTempThumbKeys(Collection<String> tempThumbKeys) {
+        syncTempThumbKeys(tempThumbKeys, drainExecutor);
+    }
+
+    /**
+     * 在指定线程池上同步，每个分片一个任务
+     *
+     * @param tempThumbKeys
+     * @param executor
+     */
+    public void syncTempThumbKeys(Collection<String> tempThumbKeys, Executor executor) {
+        int nowSecondOfDay = LocalTime.now().toSecondOfDay();
+        Map<Integer, List<String>> shardKeys = tempThumbKeys.stream()
+                .filter(thumbSyncCoordinator::ownsKey)
+                .collect(Collectors.groupingBy(RedisKeyUtil::parseTempThumbShard));
+        CompletableFuture<?>[] futures = shardKeys.entrySet().stream()
+                .map(entry -> CompletableFuture.runAsync(() -> syncShard(entry.getKey(), entry.getValue(), nowSecondOfDay), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * 持有分片锁，按时间片从早到晚串行同步同一分片的 key；同一时间片中分片前写入的不分片 key 更早，排在前面
+     */
+    private void syncShard(int shard, List<String> tempThumbKeys, int nowSecondOfDay) {
+        tempThumbKeys.sort(Comparator.<String>comparingInt(tempThumbKey -> getSliceAge(tempThumbKey, nowSecondOfDay))
+                .reversed()
+                .thenComparingInt(String::length));
+        ReentrantLock shardLock = shardLocks.computeIfAbsent(shard, key -> new ReentrantLock());
+        shardLock.lock();
+        try {
+            for (String tempThumbKey : tempThumbKeys) {
+                try {
+                    if (!syncTempThumbKey(tempThumbKey)) {
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    log.error("同步临时点赞数据失败，保留 {} 及同分片之后的时间片等待下次同步", tempThumbKey, e);
+                    return;
+                }
+            }
+        } finally {
+            shardLock.unlock();
+        }
+    }
+
+    /**
+     * 临时点赞 key 所在时间片距当前的秒数，跨过 0 点的时间片按前一天计算
+     *
+     * @param tempThumbKey
+     * @param nowSecondOfDay 当前时间距 0 点的秒数
+     * @return
+     */
+    static int getSliceAge(String tempThumbKey, int nowSecondOfDay) {
+        return Math.floorMod(nowSecondOfDay - RedisKeyUtil.parseTempThumbSecondOfDay(tempThumbKey), (int) TimeUnit.DAYS.toSeconds(1));
+    }
+
+    /**
+     * 先把临时 key 认领（RENAME）为同步中 key，再同步同步中 key；
+     * 上次同步中断遗留的同步中 key 先处理完，再认领原 key 中之后写入的数据，都处理完后从待同步索引中移除
+     *
+     * @return 是否处理完，分片被交给其他节点或应用关闭时返回 false
+     */
+    private boolean syncTempThumbKey(String tempThumbKey) {
+        String processingKey = RedisKeyUtil.getProcessingTempThumbKey(tempThumbKey);
+        List<String> claimKeys = List.of(tempThumbKey, processingKey, RedisKeyUtil.getSyncPendingKey(RedisKeyUtil.parseTempThumbShard(tempThumbKey)));
+        while (!stopping && thumbRedisTemplate.execute(RedisLuaScriptConstant.CLAIM_TEMP_THUMB_SCRIPT, claimKeys) != 0) {
+            if (!syncProcessingKey(processingKey)) {
+                return false;
+            }
+        }
+        return !stopping;
+    }
+
+    /**
+     * 按 chunkSize 分块 HSCAN 同步中 key，每块独立事务写库，提交后 HDEL 已写入的字段，
+     * 内存中只保留一块数据；中途失败时 key 中只剩未写库的字段，下次同步从这里继续。
+     * 提交后、HDEL 前宕机时这一块会被重放，由 ThumbSyncWriter 按（用户，博客）幂等写入保证不重复计数
+     *
+     * @return 是否处理完，分片被交给其他节点或应用关闭时返回 false
+     */
+    private boolean syncProcessingKey(String processingKey) {
+        int chunkSize = thumbSyncProperties.getChunkSize();
+        ScanOptions scanOptions = ScanOptions.scanOptions().count(chunkSize).build();
+        long total = 0;
+        try (Cursor<Map.Entry<String, Long>> cursor = thumbRedisTemplate.<String, Long>opsForHash().scan(processingKey, scanOptions)) {
+            Map<String, Long> chunk = new HashMap<>(chunkSize * 4 / 3 + 1);
+            // HDEL 可能使 hash 缩容，缩容期间 HSCAN 会重复返回字段；
+            // 读取当前页之后才删除的字段一定已经写库，跳过，读取新页时清空
+            Set<String> deletedSincePage = new HashSet<>();
+            Cursor.CursorId page = cursor.getId();
+            while (cursor.hasNext()) {
+                if (!page.equals(cursor.getId())) {
+                    page = cursor.getId();
+                    deletedSincePage.clear();
+                }
+                Map.Entry<String, Long> entry = cursor.next();
+                if (deletedSincePage.contains(entry.getKey())) {
+                    continue;
+                }
+                chunk.put(entry.getKey(), entry.getValue());
+                if (chunk.size() >= chunkSize) {
+                    if (handedOver(processingKey)) {
+                        return false;
+                    }
+                    total += syncChunk(processingKey, chunk);
+                    deletedSincePage.addAll(chunk.keySet());
+                    chunk.clear();
                 }
-                continue;
             }
-            // 计算点赞数量
-            blogThumbCountMap.put(blogId, blogThumbCountMap.getOrDefault(blogId, 0L) + thumbType);
+            if (!chunk.isEmpty()) {
+                if (handedOver(processingKey)) {
+                    return false;
+                }
+                total += syncChunk(processingKey, chunk);
+            }
+        }
+        // 字段全部删除后 Redis 自动移除空 key
+        if (total > 0) {
+            log.debug("同步 {}：{} 条", processingKey, total);
         }
-        // 批量插入
-        thumbService.saveBatch(thumbList);
-        // 批量删除
-        if (needRemove) {
-            thumbService.remove(queryWrapper);
+        return true;
+    }
+
+    /**
+     * 同步过程中分片被交给其他节点或应用关闭时停止，剩余数据由新的负责节点或下次同步处理
+     */
+    private boolean handedOver(String tempThumbKey) {
+        if (stopping) {
+            return true;
         }
-        // 批量更新博客点赞数
-        if (!CollUtil.isEmpty(blogThumbCountMap)) {
-            blogMapper.batchUpdateThumbCount(blogThumbCountMap);
+        if (thumbSyncCoordinator.ownsKey(tempThumbKey)) {
+            return false;
         }
-        // 异步删除
-        Thread.startVirtualThread(() -> {
-            redisTemplate.delete(tempThumbKey);
-        });
+        log.info("分片已交给其他节点，停止同步 {}", tempThumbKey);
+        return true;
+    }
+
+    private int syncChunk(String processingKey, Map<String, Long> chunk) {
+        ThumbSyncBatch batch = ThumbSyncBatch.aggregate(chunk);
+        transactionTemplate.executeWithoutResult(status -> persist(batch));
+        // 删除字段与扣除博客点赞数变化量在同一个脚本中逐字段完成，只有本次删除的字段才扣除；
+        // 提交后、执行前宕机，或分片交接时两个节点同步了同一块，重放的一块数据库幂等不重复计数，变化量也只扣除一次
+        int countDeltaShards = thumbSyncProperties.getCountDeltaShards();
+        List<String> keys = new ArrayList<>(chunk.size() + 1);
+        keys.add(processingKey);
+        for (String userIdBlogId : chunk.keySet()) {
+            Long blogId = Long.valueOf(userIdBlogId.substring(userIdBlogId.indexOf(':') + 1));
+            keys.add(RedisKeyUtil.getBlogThumbCountDeltaKey(blogId, countDeltaShards));
+        }
+        stringRedisTemplate.execute(RedisLuaScriptConstant.CONSUME_TEMP_THUMB_SCRIPT, keys, chunk.keySet().toArray());
+        return chunk.size();
+    }
+
+    /**
+     * 一块临时点赞数据的批量写库，条数不超过 chunkSize
+     *
+     * @param batch
+     */
+    protected void persist(ThumbSyncBatch batch) {
+        thumbSyncWriter.write(batch);
     }
 }
@@ -0,0 +1,83 @@
+package com.shousi.thumbweb.job;
+
+import cn.hutool.core.text.StrPool;
+import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个时间片内的临时点赞数据汇总结果，只做内存计算，不访问 Redis 和数据库
+ */
+@Getter
+@Slf4j
+public class ThumbSyncBatch {
+
+    /**
+     * 需要插入的点赞记录
+     */
+    private final List<Thumb> thumbList = new ArrayList<>();
+
+    /**
+     * 需要删除的点赞记录（只包含 userId、blogId）
+     */
+    private final List<Thumb> removeList = new ArrayList<>();
+
+    /**
+     * 博客点赞数变化量
+     */
+    private final Map<Long, Long> blogThumbCountMap = new HashMap<>();
+
+    /**
+     * 汇总临时点赞数据
+     *
+     * @param tempThumbMap userId:blogId -> 点赞类型（1:点赞 -1:取消点赞 0:无变化）
+     * @return
+     */
+    public static ThumbSyncBatch aggregate(Map<String, Long> tempThumbMap) {
+        ThumbSyncBatch batch = new ThumbSyncBatch();
+        for (Map.Entry<String, Long> entry : tempThumbMap.entrySet()) {
+            String userIdBlogId = entry.getKey();
+            String[] split = userIdBlogId.split(StrPool.COLON);
+            Long userId = Long.valueOf(split[0]);
+            Long blogId = Long.valueOf(split[1]);
+            // -1:取消点赞  1:点赞
+            batch.add(userId, blogId, entry.getValue().intValue());
+        }
+        return batch;
+    }
+
+    /**
+     * 记录一个（用户，博客）的最终点赞变化
+     *
+     * @param userId
+     * @param blogId
+     * @param thumbType 1:点赞 -1:取消点赞 0:无变化
+     */
+    public void add(Long userId, Long blogId, int thumbType) {
+        Thumb thumb = new Thumb();
+        thumb.setUserId(userId);
+        thumb.setBlogId(blogId);
+        if (thumbType == ThumbTypeEnum.INCR.getValue()) {
+            thumbList.add(thumb);
+        } else if (thumbType == ThumbTypeEnum.DECR.getValue()) {
+            removeList.add(thumb);
+        } else {
+            if (thumbType != ThumbTypeEnum.NON.getValue()) {
+                log.warn("点赞类型错误：{}", thumbType);
+            }
+            return;
+        }
+        // 计算点赞数量
+        blogThumbCountMap.merge(blogId, (long) thumbType, Long::sum);
+    }
+
+    public boolean isEmpty() {
+        return thumbList.isEmpty() && removeList.isEmpty();
+    }
+}
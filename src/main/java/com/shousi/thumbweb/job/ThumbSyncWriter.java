@@ -0,0 +1,99 @@
+package com.shousi.thumbweb.job;
+
+import cn.hutool.core.collection.ListUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.mapper.BlogMapper;
+import com.shousi.thumbweb.mapper.ThumbMapper;
+import com.shousi.thumbweb.model.entity.Thumb;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 点赞汇总结果批量写库：多行 INSERT IGNORE 插入、行构造器 IN 删除、CASE 更新博客点赞数，
+ * 每条语句不超过 dbBatchSize 行，事务由调用方控制
+ * <p>
+ * 按（用户，博客）幂等：写入前先查出已存在的记录，只插入不存在的、只删除存在的，
+ * 博客点赞数按实际插入和删除的行数变化，同一批数据重放多次结果不变。
+ * 查询与写入之间被其他事务抢先写入时影响行数与预期不符，此时抛出异常回滚整批，重试时重新查询
+ */
+@Component
+@Slf4j
+public class ThumbSyncWriter {
+
+    @Resource
+    private ThumbMapper thumbMapper;
+
+    @Resource
+    private BlogMapper blogMapper;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    public void write(ThumbSyncBatch batch) {
+        int dbBatchSize = thumbSyncProperties.getDbBatchSize();
+        Map<Long, Long> blogThumbCountMap = new HashMap<>();
+        int skipped = 0;
+        for (List<Thumb> thumbList : ListUtil.partition(batch.getThumbList(), dbBatchSize)) {
+            Set<ThumbKey> existing = selectExisting(thumbList);
+            List<Thumb> insertList = thumbList.stream()
+                    .filter(thumb -> !existing.contains(new ThumbKey(thumb.getUserId(), thumb.getBlogId())))
+                    .toList();
+            skipped += thumbList.size() - insertList.size();
+            if (insertList.isEmpty()) {
+                continue;
+            }
+            for (Thumb thumb : insertList) {
+                if (thumb.getId() == null) {
+                    thumb.setId(IdWorker.getId());
+                }
+            }
+            int inserted = thumbMapper.batchInsertIgnore(insertList);
+            if (inserted != insertList.size()) {
+                // 无法区分被忽略的是哪几条，不能按预期行数计数
+                throw new RuntimeException("点赞记录插入条数与预期不符：" + inserted + "/" + insertList.size());
+            }
+            insertList.forEach(thumb -> blogThumbCountMap.merge(thumb.getBlogId(), 1L, Long::sum));
+        }
+        for (List<Thumb> removeList : ListUtil.partition(batch.getRemoveList(), dbBatchSize)) {
+            Set<ThumbKey> existing = selectExisting(removeList);
+            List<Thumb> deleteList = removeList.stream()
+                    .filter(thumb -> existing.contains(new ThumbKey(thumb.getUserId(), thumb.getBlogId())))
+                    .toList();
+            skipped += removeList.size() - deleteList.size();
+            if (deleteList.isEmpty()) {
+                continue;
+            }
+            int deleted = thumbMapper.batchDeleteByUserIdAndBlogId(deleteList);
+            if (deleted != deleteList.size()) {
+                throw new RuntimeException("点赞记录删除条数与预期不符：" + deleted + "/" + deleteList.size());
+            }
+            deleteList.forEach(thumb -> blogThumbCountMap.merge(thumb.getBlogId(), -1L, Long::sum));
+        }
+        if (skipped > 0) {
+            log.info("点赞记录已是最终状态（重放或重复投递），跳过 {} 条", skipped);
+        }
+        // 批量更新博客点赞数
+        blogThumbCountMap.values().removeIf(count -> count == 0);
+        List<Map.Entry<Long, Long>> countList = new ArrayList<>(blogThumbCountMap.entrySet());
+        for (List<Map.Entry<Long, Long>> entries : ListUtil.partition(countList, dbBatchSize)) {
+            Map<Long, Long> countMap = new HashMap<>(entries.size() * 4 / 3 + 1);
+            entries.forEach(entry -> countMap.put(entry.getKey(), entry.getValue()));
+            blogMapper.batchUpdateThumbCount(countMap);
+        }
+    }
+
+    private Set<ThumbKey> selectExisting(List<Thumb> thumbList) {
+        Set<ThumbKey> existing = new HashSet<>();
+        for (Thumb thumb : thumbMapper.selectByUserIdAndBlogId(thumbList)) {
+            existing.add(new ThumbKey(thumb.getUserId(), thumb.getBlogId()));
+        }
+        return existing;
+    }
+
+    private record ThumbKey(Long userId, Long blogId) {
+    }
+}
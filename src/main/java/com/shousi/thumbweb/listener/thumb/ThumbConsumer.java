@@ -0,0 +1,169 @@
+package com.shousi.thumbweb.listener.thumb;
+
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.job.ThumbSyncBatch;
+import com.shousi.thumbweb.job.ThumbSyncWriter;
+import com.shousi.thumbweb.listener.thumb.msg.ThumbEvent;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.common.schema.SchemaType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.pulsar.annotation.PulsarListener;
+import org.springframework.pulsar.listener.AckMode;
+import org.springframework.pulsar.listener.Acknowledgement;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * 点赞事件消费者：批量拉取，同一批次内按（用户，博客）合并后一次性写库，
+ * 整批写库成功后确认，失败时回滚并逐条 nack，由 Pulsar 重新投递。
+ * 提交后逐条事件从 Redis 的博客点赞数变化量中扣除自己的计数，扣除失败时同样整批重新投递，
+ * 重复投递的事件写库幂等，扣除时按消息 ID 去重，不会重复扣除
+ * <p>
+ * nack 重新投递的事件可能晚于同一（用户，博客）之后的事件到达，因此不依赖接收顺序：
+ * 批次内按事件时间取每个（用户，博客）最新的事件，写库前再与 Redis 中的点赞状态核对，
+ * 事件与当前状态不一致说明还有更新的事件，跳过旧事件，由更新的事件决定数据库中的结果
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "thumb.mq", name = "enabled", havingValue = "true")
+public class ThumbConsumer {
+
+    @Resource
+    private ThumbSyncWriter thumbSyncWriter;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ThumbStateStore thumbStateStore;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @PulsarListener(
+            subscriptionName = ThumbConstant.THUMB_SUBSCRIPTION,
+            topics = ThumbConstant.THUMB_TOPIC,
+            schemaType = SchemaType.JSON,
+            batch = true,
+            ackMode = AckMode.MANUAL,
+            consumerCustomizer = "thumbConsumerConfig"
+    )
+    public void processBatch(List<Message<ThumbEvent>> messages, Acknowledgement acknowledgement) {
+        List<MessageId> messageIds = messages.stream().map(Message::getMessageId).toList();
+        try {
+            consume(messages);
+        } catch (RuntimeException e) {
+            log.error("点赞事件处理失败，{} 条事件等待重新投递", messages.size(), e);
+            messageIds.forEach(acknowledgement::nack);
+            return;
+        }
+        acknowledgement.acknowledge(messageIds);
+    }
+
+    private void consume(List<Message<ThumbEvent>> messages) {
+        List<Message<ThumbEvent>> eventMessages = messages.stream()
+                .filter(message -> message.getValue() != null)
+                .toList();
+        ThumbSyncBatch batch = dropStale(merge(eventMessages.stream().map(Message::getValue).toList()));
+        log.info("ThumbConsumer 收到 {} 条点赞事件，合并后插入 {} 条，删除 {} 条",
+                messages.size(), batch.getThumbList().size(), batch.getRemoveList().size());
+        if (!batch.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> thumbSyncWriter.write(batch));
+        }
+        subtractThumbCountDelta(eventMessages);
+    }
+
+    /**
+     * 只保留与 Redis 中当前点赞状态一致的变化，一次 Lua 调用读取整批的状态
+     */
+    @SuppressWarnings("unchecked")
+    private ThumbSyncBatch dropStale(ThumbSyncBatch batch) {
+        List<Thumb> thumbs = new ArrayList<>(batch.getThumbList());
+        thumbs.addAll(batch.getRemoveList());
+        if (thumbs.isEmpty()) {
+            return batch;
+        }
+        List<String> keys = new ArrayList<>(thumbs.size());
+        List<String> args = new ArrayList<>(thumbs.size() * 2);
+        for (Thumb thumb : thumbs) {
+            keys.add(thumbStateStore.getKey(RedisKeyUtil.getUserThumbKey(thumb.getUserId()), thumb.getBlogId().toString()));
+            args.add("1");
+        }
+        thumbs.forEach(thumb -> args.add(thumb.getBlogId().toString()));
+        List<Object> states = stringRedisTemplate.execute(RedisLuaScriptConstant.MULTI_HMGET_SCRIPT, keys, args.toArray());
+        ThumbSyncBatch current = new ThumbSyncBatch();
+        int thumbCount = batch.getThumbList().size();
+        for (int i = 0; i < thumbs.size(); i++) {
+            boolean thumbed = states.get(i) != null;
+            if (thumbed == (i < thumbCount)) {
+                Thumb thumb = thumbs.get(i);
+                current.add(thumb.getUserId(), thumb.getBlogId(), thumbed ? ThumbTypeEnum.INCR.getValue() : ThumbTypeEnum.DECR.getValue());
+            }
+        }
+        int stale = thumbs.size() - current.getThumbList().size() - current.getRemoveList().size();
+        if (stale > 0) {
+            log.info("跳过 {} 条已被更新事件取代的点赞变化", stale);
+        }
+        return current;
+    }
+
+    /**
+     * 同一批次内被合并掉的事件也要扣除，它们各自计入了变化量
+     */
+    private void subtractThumbCountDelta(List<Message<ThumbEvent>> eventMessages) {
+        if (eventMessages.isEmpty()) {
+            return;
+        }
+        int countDeltaShards = thumbSyncProperties.getCountDeltaShards();
+        List<String> keys = new ArrayList<>(eventMessages.size() * 2);
+        List<String> args = new ArrayList<>(eventMessages.size() * 2 + 1);
+        args.add(String.valueOf(ThumbConstant.THUMB_EVENT_APPLIED_TTL_SECONDS));
+        for (Message<ThumbEvent> message : eventMessages) {
+            ThumbEvent event = message.getValue();
+            keys.add(RedisKeyUtil.getThumbEventAppliedKey(message.getMessageId().toString()));
+            keys.add(RedisKeyUtil.getBlogThumbCountDeltaKey(event.getBlogId(), countDeltaShards));
+            args.add(event.getBlogId().toString());
+            args.add(String.valueOf(event.getType().getValue()));
+        }
+        stringRedisTemplate.execute(RedisLuaScriptConstant.SUBTRACT_THUMB_COUNT_DELTA_SCRIPT, keys, args.toArray());
+    }
+
+    /**
+     * 合并同一批次内的事件：同一个（用户，博客）只保留事件时间最新的一条，时间相同时保留后收到的
+     *
+     * @param events 按接收顺序排列的事件
+     * @return
+     */
+    public static ThumbSyncBatch merge(List<ThumbEvent> events) {
+        Map<ThumbKey, ThumbEvent> latestEvents = new LinkedHashMap<>();
+        for (ThumbEvent event : events) {
+            latestEvents.merge(new ThumbKey(event.getUserId(), event.getBlogId()), event,
+                    (previous, current) -> isBefore(current, previous) ? previous : current);
+        }
+        ThumbSyncBatch batch = new ThumbSyncBatch();
+        latestEvents.forEach((key, event) -> batch.add(key.userId(), key.blogId(), event.getType().getValue()));
+        return batch;
+    }
+
+    private static boolean isBefore(ThumbEvent event, ThumbEvent other) {
+        return event.getEventTime() != null && other.getEventTime() != null && event.getEventTime().isBefore(other.getEventTime());
+    }
+
+    private record ThumbKey(Long userId, Long blogId) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.shousi.thumbweb.listener.thumb.msg;
+
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 点赞事件
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ThumbEvent implements Serializable {
+
+    /**
+     * 用户 ID
+     */
+    private Long userId;
+
+    /**
+     * 博客 ID
+     */
+    private Long blogId;
+
+    /**
+     * 事件类型：INCR 点赞，DECR 取消点赞
+     */
+    private ThumbTypeEnum type;
+
+    /**
+     * 事件发生时间
+     */
+    private LocalDateTime eventTime;
+
+    private static final long serialVersionUID = 1L;
+}
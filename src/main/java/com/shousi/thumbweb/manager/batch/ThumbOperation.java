@@ -0,0 +1,11 @@
+package com.shousi.thumbweb.manager.batch;
+
+/**
+ * 一次点赞 / 取消点赞操作
+ *
+ * @param action ThumbTypeEnum.INCR 点赞，ThumbTypeEnum.DECR 取消点赞
+ * @param userId
+ * @param blogId
+ */
+public record ThumbOperation(int action, Long userId, Long blogId) {
+}
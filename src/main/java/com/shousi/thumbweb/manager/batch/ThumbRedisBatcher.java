@@ -0,0 +1,251 @@
+package com.shousi.thumbweb.manager.batch;
+
+import cn.hutool.core.date.DateUtil;
+import com.shousi.thumbweb.config.RedisBatchProperties;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 点赞 Lua 脚本合并提交：并发的点赞 / 取消点赞请求先进入队列，由提交线程攒批后通过一次多项 Lua 脚本执行，
+ * 再把每一项的结果交还给各自的调用方。
+ * <p>
+ * 凑批是自适应的：上一批只有一项（低峰期）时立即提交，不增加延迟；出现并发后才最多等待 maxWaitMicros，
+ * 此外正在执行的批次期间到达的请求天然会合并到下一批。
+ * <p>
+ * 每个操作只会被提交线程或调用方之一认领：提交线程执行前认领，调用方等待超时时认领并取消，
+ * 取消的操作不再执行；已被提交线程认领的操作，调用方超时后继续等待实际结果，不会出现已生效却返回失败。
+ * 关闭时队列中尚未执行的操作立即失败。
+ * <p>
+ * 点赞脚本同时操作临时点赞、用户点赞状态、博客点赞数变化量和待同步索引，这些 key 无法落在同一个槽位上，
+ * 即使关闭合并提交也不能在 Redis Cluster 上执行，因此只支持单机或哨兵部署，连接 Redis Cluster 时启动失败
+ */
+@Component
+@Slf4j
+public class ThumbRedisBatcher {
+
+    private final BlockingQueue<PendingOperation> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private volatile boolean running;
+    /**
+     * 近期批次大小的指数移动平均
+     */
+    private volatile double averageBatchSize = 1;
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private RedisBatchProperties redisBatchProperties;
+
+    @Resource
+    private ThumbStateStore thumbStateStore;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @PostConstruct
+    public void start() {
+        if (thumbRedisTemplate.getConnectionFactory() instanceof JedisConnectionFactory connectionFactory
+                && connectionFactory.isRedisClusterAware()) {
+            throw new RuntimeException("点赞脚本操作的 key 跨多个槽位，不支持 Redis Cluster，请使用单机或哨兵部署");
+        }
+        if (!redisBatchProperties.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < redisBatchProperties.getDispatchers(); i++) {
+            dispatchers.add(Thread.ofPlatform()
+                    .name("thumb-redis-batcher-" + i)
+                    .daemon()
+                    .start(this::dispatchLoop));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatchers.forEach(Thread::interrupt);
+        failPending();
+    }
+
+    /**
+     * 清空队列，尚未执行的操作全部失败
+     */
+    private void failPending() {
+        List<PendingOperation> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        fail(pending, new RuntimeException("点赞服务正在关闭"));
+    }
+
+    private static void fail(List<PendingOperation> operations, Throwable e) {
+        for (PendingOperation operation : operations) {
+            if (operation.claim()) {
+                operation.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 点赞或取消点赞，阻塞直到所在批次执行完成
+     *
+     * @param action ThumbTypeEnum.INCR 点赞，ThumbTypeEnum.DECR 取消点赞
+     * @param userId
+     * @param blogId
+     * @return Lua 脚本返回值：1 成功，-1 失败
+     */
+    public long execute(int action, Long userId, Long blogId) {
+        if (!running) {
+            return executeBatch(List.of(new ThumbOperation(action, userId, blogId))).get(0);
+        }
+        PendingOperation operation = new PendingOperation(new ThumbOperation(action, userId, blogId), new CompletableFuture<>(), new AtomicBoolean());
+        queue.add(operation);
+        if (!running) {
+            // 入队的同时关闭，队列可能已经清空过
+            failPending();
+        }
+        try {
+            try {
+                return operation.future().get(redisBatchProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (operation.claim()) {
+                    operation.future().cancel(false);
+                    throw new RuntimeException("点赞失败，请稍后重试", e);
+                }
+                // 提交线程已在执行，等待实际结果，耗时受 Redis 命令超时限制
+                return operation.future().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (operation.claim()) {
+                operation.future().cancel(false);
+            }
+            throw new RuntimeException("点赞被中断");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("点赞失败，请稍后重试", e);
+        }
+    }
+
+    private void dispatchLoop() {
+        int maxBatchSize = redisBatchProperties.getMaxBatchSize();
+        List<PendingOperation> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                // 有并发时再等待一小段时间凑批
+                if (batch.size() < maxBatchSize && averageBatchSize >= 2) {
+                    long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(redisBatchProperties.getMaxWaitMicros());
+                    long remaining;
+                    while (batch.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                        PendingOperation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+                averageBatchSize = averageBatchSize * 0.9 + batch.size() * 0.1;
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new RuntimeException("点赞服务正在关闭"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<PendingOperation> batch) {
+        // 跳过调用方已超时取消的操作
+        batch.removeIf(operation -> !operation.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> results = executeBatch(batch.stream().map(PendingOperation::operation).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("批量执行点赞脚本失败，批次大小 {}", batch.size(), e);
+            batch.forEach(operation -> operation.future().completeExceptionally(e));
+        }
+        operations.add(batch.size());
+        batches.increment();
+    }
+
+    /**
+     * 一次 Lua 调用执行整批操作，不经过队列，适用于调用方自身已是一批操作的场景
+     *
+     * @return 与 batch 一一对应的结果：1 成功，-1 失败
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> executeBatch(List<ThumbOperation> batch) {
+        List<String> keys = new ArrayList<>(batch.size() * 4);
+        Object[] args = new Object[batch.size() * 3 + 1];
+        Date now = DateUtil.date();
+        String timeSlice = RedisKeyUtil.getTimeSlice(now);
+        args[0] = RedisKeyUtil.getTimeSliceEpochSecond(now);
+        int shards = thumbSyncProperties.getShards();
+        int countDeltaShards = thumbSyncProperties.getCountDeltaShards();
+        for (int i = 0; i < batch.size(); i++) {
+            ThumbOperation operation = batch.get(i);
+            int shard = RedisKeyUtil.getTempThumbShard(operation.userId(), shards);
+            keys.add(RedisKeyUtil.getTempThumbKey(timeSlice, shard, shards));
+            keys.add(thumbStateStore.getKey(RedisKeyUtil.getUserThumbKey(operation.userId()), operation.blogId().toString()));
+            keys.add(RedisKeyUtil.getBlogThumbCountDeltaKey(operation.blogId(), countDeltaShards));
+            keys.add(RedisKeyUtil.getSyncPendingKey(shard));
+            args[i * 3 + 1] = (long) operation.action();
+            args[i * 3 + 2] = operation.userId();
+            args[i * 3 + 3] = operation.blogId();
+        }
+        return (List<Long>) thumbRedisTemplate.execute(RedisLuaScriptConstant.THUMB_BATCH_SCRIPT, keys, args);
+    }
+
+    /**
+     * 已执行的操作数
+     */
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    /**
+     * 已执行的批次数，即 Lua 脚本调用次数
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * 排队等待执行的操作
+     *
+     * @param claimed 是否已被提交线程（执行）或调用方（取消）认领
+     */
+    private record PendingOperation(ThumbOperation operation, CompletableFuture<Long> future, AtomicBoolean claimed) {
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.shousi.thumbweb.manager.cache;
+
+import lombok.Getter;
+
+/**
+ * HeavyKeeper 添加元素的返回结果
+ * <p>
+ * 未发生淘汰时复用共享的常量实例，热路径上不产生任何对象分配
+ */
+@Getter
+public class AddResult {
+
+    /**
+     * 未进入 TopK
+     */
+    public static final AddResult COLD = new AddResult(null, false);
+
+    /**
+     * 进入（或已在）TopK，且没有 Key 被挤出
+     */
+    public static final AddResult HOT = new AddResult(null, true);
+
+    // 被挤出的 key
+    private final String expelledKey;
+    // 当前 key 是否进入 TopK
+    private final boolean isHotKey;
+
+    private AddResult(String expelledKey, boolean isHotKey) {
+        this.expelledKey = expelledKey;
+        this.isHotKey = isHotKey;
+    }
+
+    /**
+     * 当前 key 进入 TopK 并挤出了 expelledKey
+     */
+    public static AddResult expelled(String expelledKey) {
+        return new AddResult(expelledKey, true);
+    }
+
+}
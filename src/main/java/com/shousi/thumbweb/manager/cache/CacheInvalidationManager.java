@@ -0,0 +1,117 @@
+package com.shousi.thumbweb.manager.cache;
+
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.constant.HotKeyConstant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地缓存跨节点失效：写操作后登记被修改的 Key，定期合并去重后通过 Redis pub/sub 批量通知其他节点移除本地副本，
+ * 同一个 Key 在一个周期内被修改多次只广播一次，避免点赞高峰时消息数量随写入量放大
+ */
+@Component
+@Slf4j
+public class CacheInvalidationManager implements MessageListener {
+
+    /**
+     * 等待广播的 Key，Set 天然合并同一周期内的重复修改
+     */
+    private final Set<CacheKey> pendingKeys = ConcurrentHashMap.newKeySet();
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private CacheProperties cacheProperties;
+
+    @PostConstruct
+    public void subscribe() {
+        if (cacheProperties.getInvalidation().isEnabled()) {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(HotKeyConstant.CACHE_INVALIDATION_CHANNEL));
+        }
+    }
+
+    /**
+     * 登记被修改的 Key，下一个广播周期通知其他节点
+     *
+     * @param hashKey
+     * @param key
+     */
+    public void publish(String hashKey, String key) {
+        if (cacheProperties.getInvalidation().isEnabled()) {
+            pendingKeys.add(new CacheKey(hashKey, key));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${thumb.cache.invalidation.flush-millis:50}", timeUnit = TimeUnit.MILLISECONDS)
+    public void flush() {
+        if (pendingKeys.isEmpty()) {
+            return;
+        }
+        int maxBatchSize = cacheProperties.getInvalidation().getMaxBatchSize();
+        List<String> batch = new ArrayList<>();
+        Iterator<CacheKey> iterator = pendingKeys.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next().toString());
+            iterator.remove();
+            if (batch.size() >= maxBatchSize) {
+                send(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<String> keys) {
+        try {
+            CacheInvalidationMessage message = new CacheInvalidationMessage();
+            message.setNodeId(cacheProperties.getCluster().getNodeId());
+            message.setKeys(keys);
+            redisTemplate.convertAndSend(HotKeyConstant.CACHE_INVALIDATION_CHANNEL, message);
+            log.debug("广播本地缓存失效 {} 个", keys.size());
+        } catch (RuntimeException e) {
+            // 广播失败时其他节点依靠本地缓存过期兜底
+            log.error("广播本地缓存失效失败，丢弃 {} 个 Key", keys.size(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (!(body instanceof CacheInvalidationMessage invalidation)) {
+                return;
+            }
+            // 本节点写入时已经更新过本地缓存
+            if (cacheProperties.getCluster().getNodeId().equals(invalidation.getNodeId())) {
+                return;
+            }
+            cacheManager.invalidateAll(invalidation.getKeys().stream().map(CacheKey::parse).toList());
+        } catch (RuntimeException e) {
+            log.error("处理本地缓存失效广播失败", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shousi.thumbweb.manager.cache;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 本地缓存失效广播
+ */
+@Data
+public class CacheInvalidationMessage implements Serializable {
+
+    /**
+     * 发送节点 ID，节点忽略自己发出的消息
+     */
+    private String nodeId;
+
+    /**
+     * 需要失效的 hashKey:field
+     */
+    private List<String> keys;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,34 @@
+package com.shousi.thumbweb.manager.cache;
+
+/**
+ * 本地缓存的复合 Key，持有 hashKey 与 field 的引用，避免每次查询都拼接字符串
+ *
+ * @param hashKey Redis hash 的 key
+ * @param field   Redis hash 的 field
+ */
+public record CacheKey(String hashKey, String field) {
+
+    /**
+     * 由 TopK 中的 hashKey:field 形式还原
+     */
+    public static CacheKey parse(String compositeKey) {
+        int index = compositeKey.lastIndexOf(':');
+        return new CacheKey(compositeKey.substring(0, index), compositeKey.substring(index + 1));
+    }
+
+    /**
+     * record 默认的 31 * h(hashKey) + h(field) 对 thumb:{userId} 与数字 blogId 这类 Key 大量冲突，
+     * 这里先乘再异或并打散高低位，避免 Caffeine 内部的哈希表退化成红黑树
+     */
+    @Override
+    public int hashCode() {
+        int h = hashKey.hashCode() * 0x9E3779B9 ^ field.hashCode();
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return hashKey + ":" + field;
+    }
+}
@@ -3,23 +3,46 @@ package com.shousi.thumbweb.manager.cache;
 import cn.hutool.core.util.ObjectUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import com.shousi.thumbweb.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class CacheManager {
     private TopK hotKeyDetector;
-    private Cache<String, Object> localCache;
+    private Cache<CacheKey, Object> localCache;
+    /**
+     * 负缓存：记录 Redis 中不存在的 Key（未点赞），独立的容量与更短的过期时间
+     */
+    private Cache<CacheKey, Boolean> negativeCache;
+    /**
+     * 按 Key 分段的写入版本号，写入或失效时递增；从 Redis 查到的值（包括不存在）写入本地缓存或负缓存后，
+     * 若版本在查询期间发生变化则撤销写入，避免查询期间到达的失效被旧结果覆盖
+     */
+    private final AtomicLongArray writeVersions = new AtomicLongArray(WRITE_VERSION_STRIPES);
+    private static final int WRITE_VERSION_STRIPES = 1024;
+    /**
+     * 集群聚合得到的全局热点 Key，即使本节点访问量不足也会缓存
+     */
+    private volatile Set<CacheKey> globalHotKeys = Collections.emptySet();
+
+    @Resource
+    private ThumbStateStore thumbStateStore;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheProperties cacheProperties;
 
     @Bean
     public TopK getHotKeyDetector() {
@@ -33,50 +56,149 @@ public class CacheManager {
                 // 衰减系数  
                 0.92,
                 // 最小出现 10 次才记录  
-                10
+                10,
+                // 衰减周期，每个周期计数减半
+                Duration.ofSeconds(cacheProperties.getHotKeyFadingSeconds())
         );
+        // Key 被挤出 TopK 后立即从本地缓存中移除，本地缓存只保留当前的热点数据
+        hotKeyDetector.addExpelledListener(item -> {
+            CacheKey cacheKey = CacheKey.parse(item.key());
+            // 仍是全局热点的 Key 继续保留
+            if (localCache != null && !globalHotKeys.contains(cacheKey)) {
+                localCache.invalidate(cacheKey);
+            }
+        });
         return hotKeyDetector;
     }
 
     @Bean
-    public Cache<String, Object> localCache() {
+    public Cache<CacheKey, Object> localCache() {
         return localCache = Caffeine.newBuilder()
                 .maximumSize(1000)
-                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .expireAfterWrite(cacheProperties.getLocalExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Bean
+    public Cache<CacheKey, Boolean> negativeCache() {
+        return negativeCache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getNegativeMaximumSize())
+                .expireAfterWrite(cacheProperties.getNegativeExpireSeconds(), TimeUnit.SECONDS)
                 .build();
     }
 
     public Object get(String hashKey, String key) {
-        // 构造唯一的复合键
-        String compositeKey = buildCacheKey(hashKey, key);
+        return get(new CacheKey(hashKey, key), false, 0, 0);
+    }
+
+    /**
+     * 查询用户对博客的点赞状态，与 get("thumb:" + userId, String.valueOf(blogId)) 等价，
+     * 访问记录走 TopK.add(userId, blogId)，不再按字符串计算 hash
+     *
+     * @param userId
+     * @param blogId
+     * @return
+     */
+    public Object get(long userId, long blogId) {
+        return get(new CacheKey(RedisKeyUtil.getUserThumbKey(userId), String.valueOf(blogId)), true, userId, blogId);
+    }
 
+    /**
+     * @param thumbKey compositeKey 是否为 userId、blogId 对应的点赞状态 Key
+     */
+    private Object get(CacheKey compositeKey, boolean thumbKey, long userId, long blogId) {
         // 1.先查本地缓存
         Object value = localCache.getIfPresent(compositeKey);
         if (value != null) {
-            log.info("从本地缓存中获取数据：{} = {}", compositeKey, value);
+            log.debug("从本地缓存中获取数据：{} = {}", compositeKey, value);
             // 记录访问次数
-            hotKeyDetector.add(compositeKey, 1);
+            recordAccess(compositeKey, thumbKey, userId, blogId);
             return value;
         }
+        if (negativeCache.getIfPresent(compositeKey) != null) {
+            log.debug("命中负缓存：{}", compositeKey);
+            recordAccess(compositeKey, thumbKey, userId, blogId);
+            return null;
+        }
 
         // 2.本地缓存未命中，查询 Redis
-        Object redisValue = redisTemplate.opsForHash().get(hashKey, key);
-        log.info("本地缓存未命中，查询 Redis = {}", redisValue);
+        long version = writeVersion(compositeKey);
+        Object redisValue = thumbStateStore.get(compositeKey.hashKey(), compositeKey.field());
+        log.debug("本地缓存未命中，查询 Redis = {}", redisValue);
         if (redisValue == null) {
+            recordAccess(compositeKey, thumbKey, userId, blogId);
+            putTombstone(compositeKey, version);
             return null;
         }
 
         // 3.记录访问
-        AddResult addResult = hotKeyDetector.add(compositeKey, 1);
+        AddResult addResult = recordAccess(compositeKey, thumbKey, userId, blogId);
 
         // 4.如果是热点 Key 并且不在本地缓存，则缓存数据
         if (addResult.isHotKey()) {
-            localCache.put(compositeKey, redisValue);
+            putLocal(compositeKey, redisValue, version);
         }
 
         return redisValue;
     }
 
+    private AddResult recordAccess(CacheKey compositeKey, boolean thumbKey, long userId, long blogId) {
+        return thumbKey ? hotKeyDetector.add(userId, blogId) : hotKeyDetector.add(compositeKey.hashKey(), compositeKey.field(), 1);
+    }
+
+    /**
+     * 批量查询同一个 hash 下的多个 field：本地缓存命中的直接返回，未命中的合并为一次 HMGET，
+     * 所有 field 的访问统一记录一次热点
+     *
+     * @param hashKey
+     * @param fields
+     * @return 与 fields 一一对应的值，不存在为 null
+     */
+    public List<Object> getAll(String hashKey, Collection<String> fields) {
+        List<String> fieldList = fields instanceof List<String> list ? list : new ArrayList<>(fields);
+        int size = fieldList.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        Object[] values = new Object[size];
+
+        // 1.先查本地缓存，记录未命中的位置
+        List<String> missingFields = new ArrayList<>();
+        int[] missingIndexes = new int[size];
+        long[] missingVersions = new long[size];
+        for (int i = 0; i < size; i++) {
+            CacheKey cacheKey = new CacheKey(hashKey, fieldList.get(i));
+            values[i] = localCache.getIfPresent(cacheKey);
+            if (values[i] == null && negativeCache.getIfPresent(cacheKey) == null) {
+                missingVersions[missingFields.size()] = writeVersion(cacheKey);
+                missingIndexes[missingFields.size()] = i;
+                missingFields.add(fieldList.get(i));
+            }
+        }
+
+        // 2.未命中的一次 HMGET，不存在的记入负缓存
+        if (!missingFields.isEmpty()) {
+            List<Long> redisValues = thumbStateStore.multiGet(hashKey, missingFields);
+            for (int j = 0; j < missingFields.size(); j++) {
+                values[missingIndexes[j]] = redisValues.get(j);
+                if (redisValues.get(j) == null) {
+                    putTombstone(new CacheKey(hashKey, missingFields.get(j)), missingVersions[j]);
+                }
+            }
+        }
+        log.debug("批量查询 {}：{} 个 field，本地缓存命中 {} 个", hashKey, size, size - missingFields.size());
+
+        // 3.批量记录访问，从 Redis 查到的热点 Key 放入本地缓存
+        List<AddResult> addResults = hotKeyDetector.addAll(hashKey, fieldList, 1);
+        for (int j = 0; j < missingFields.size(); j++) {
+            int i = missingIndexes[j];
+            if (values[i] != null && addResults.get(i).isHotKey()) {
+                putLocal(new CacheKey(hashKey, fieldList.get(i)), values[i], missingVersions[j]);
+            }
+        }
+        return Arrays.asList(values);
+    }
+
     /**
      * 更新本地缓存
      *
@@ -85,7 +207,9 @@ public class CacheManager {
      * @param value
      */
     public void putIfPresent(String hashKey, String key, Object value) {
-        String compositeKey = buildCacheKey(hashKey, key);
+        CacheKey compositeKey = new CacheKey(hashKey, key);
+        // 已写入 Redis，负缓存失效
+        invalidateTombstone(compositeKey);
         Object object = localCache.getIfPresent(compositeKey);
         if (object == null) {
             return;
@@ -94,21 +218,123 @@ public class CacheManager {
     }
 
     /**
-     * 定期清理过期的热点 Key（20分钟）
+     * 移除本地缓存
+     *
+     * @param hashKey
+     * @param key
      */
-    @Scheduled(fixedRate = 20, timeUnit = TimeUnit.MINUTES)
-    public void cleanHotKeys() {
-        hotKeyDetector.fading();
+    public void invalidate(String hashKey, String key) {
+        CacheKey compositeKey = new CacheKey(hashKey, key);
+        invalidateTombstone(compositeKey);
+        localCache.invalidate(compositeKey);
     }
 
     /**
-     * 构造复合 key
+     * 标记 Key 在 Redis 中已删除（取消点赞），本地缓存直接记为负缓存
      *
      * @param hashKey
      * @param key
-     * @return
      */
-    private String buildCacheKey(String hashKey, String key) {
-        return hashKey + ":" + key;
+    public void putTombstone(String hashKey, String key) {
+        CacheKey compositeKey = new CacheKey(hashKey, key);
+        // 与失效相同先递增版本号，正在查询 Redis 的线程不会再写回点赞状态
+        writeVersions.incrementAndGet(stripe(compositeKey));
+        localCache.invalidate(compositeKey);
+        negativeCache.put(compositeKey, Boolean.TRUE);
+    }
+
+    /**
+     * 批量移除本地缓存，用于其他节点修改数据后的失效通知
+     *
+     * @param cacheKeys
+     */
+    public void invalidateAll(Collection<CacheKey> cacheKeys) {
+        // invalidateTombstone 同时递增版本号，须在移除本地缓存之前
+        cacheKeys.forEach(this::invalidateTombstone);
+        localCache.invalidateAll(cacheKeys);
+    }
+
+    /**
+     * 更新全局热点 Key：不再是热点的移出本地缓存，新的热点按 hashKey 分组批量从 Redis 预加载
+     *
+     * @param compositeKeys hashKey:field 形式的全局热点 Key
+     */
+    public void refreshGlobalHotKeys(Collection<String> compositeKeys) {
+        Set<CacheKey> next = compositeKeys.stream().map(CacheKey::parse).collect(Collectors.toSet());
+        Set<CacheKey> localHotKeys = hotKeyDetector.list().stream()
+                .map(item -> CacheKey.parse(item.key()))
+                .collect(Collectors.toSet());
+        for (CacheKey cacheKey : globalHotKeys) {
+            if (!next.contains(cacheKey) && !localHotKeys.contains(cacheKey)) {
+                localCache.invalidate(cacheKey);
+            }
+        }
+        globalHotKeys = next;
+
+        Map<String, List<String>> missingFields = new HashMap<>();
+        Map<CacheKey, Long> versions = new HashMap<>();
+        for (CacheKey cacheKey : next) {
+            if (localCache.getIfPresent(cacheKey) == null) {
+                versions.put(cacheKey, writeVersion(cacheKey));
+                missingFields.computeIfAbsent(cacheKey.hashKey(), k -> new ArrayList<>()).add(cacheKey.field());
+            }
+        }
+        missingFields.forEach((hashKey, fields) -> {
+            List<Long> values = thumbStateStore.multiGet(hashKey, fields);
+            for (int i = 0; i < fields.size(); i++) {
+                if (values.get(i) != null) {
+                    CacheKey cacheKey = new CacheKey(hashKey, fields.get(i));
+                    putLocal(cacheKey, values.get(i), versions.get(cacheKey));
+                }
+            }
+        });
+        log.debug("全局热点 Key 更新：{} 个，预加载 {} 个 hash", next.size(), missingFields.size());
+    }
+
+    private long writeVersion(CacheKey cacheKey) {
+        return writeVersions.get(stripe(cacheKey));
+    }
+
+    /**
+     * 写入从 Redis 查到的值：先写入再检查版本，查询期间该 Key 所在分段有写入或失效则撤销，
+     * 失效与写入无论以何种顺序交错都不会留下旧值
+     */
+    private void putLocal(CacheKey cacheKey, Object value, long version) {
+        localCache.put(cacheKey, value);
+        if (writeVersions.get(stripe(cacheKey)) != version) {
+            localCache.invalidate(cacheKey);
+        }
+    }
+
+    /**
+     * 与 putLocal 相同，查询期间该 Key 所在分段没有写入才保留负缓存
+     */
+    private void putTombstone(CacheKey cacheKey, long version) {
+        negativeCache.put(cacheKey, Boolean.TRUE);
+        if (writeVersions.get(stripe(cacheKey)) != version) {
+            negativeCache.invalidate(cacheKey);
+        }
+    }
+
+    /**
+     * 先递增版本号再删除，保证正在查询 Redis 的线程不会再写回旧值或旧的负缓存
+     */
+    private void invalidateTombstone(CacheKey cacheKey) {
+        writeVersions.incrementAndGet(stripe(cacheKey));
+        negativeCache.invalidate(cacheKey);
+    }
+
+    private static int stripe(CacheKey cacheKey) {
+        return cacheKey.hashCode() & (WRITE_VERSION_STRIPES - 1);
+    }
+
+    /**
+     * 每个衰减周期推进一次热点探测的时间衰减，及时淘汰过气的热点 Key
+     */
+    @Scheduled(fixedRateString = "${thumb.cache.hot-key-fading-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void cleanHotKeys() {
+        hotKeyDetector.maintain();
+        log.debug("热点 Key 淘汰事件：已处理 {}，已丢弃 {}",
+                hotKeyDetector.expelledProcessed(), hotKeyDetector.expelledDropped());
     }
 }
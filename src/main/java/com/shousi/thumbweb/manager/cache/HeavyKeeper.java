@@ -1,14 +1,42 @@
 package com.shousi.thumbweb.manager.cache;
 
-import cn.hutool.core.util.HashUtil;
-import lombok.Data;
+import com.shousi.thumbweb.constant.ThumbConstant;
+import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
+@Slf4j
 public class HeavyKeeper implements TopK {
     private static final int LOOKUP_TABLE_SIZE = 256;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /**
+     * "thumb:" 前缀的 FNV-1a 中间状态，add(userId, blogId) 从这里继续 hash
+     */
+    private static final long USER_THUMB_PREFIX_HASH = hashChars(FNV_OFFSET_BASIS, ThumbConstant.USER_THUMB_KEY_PREFIX);
+    private static final VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(long[].class);
+    /**
+     * 桶的位布局：高 24 位指纹 | 中间 16 位衰减纪元 | 低 24 位计数
+     */
+    private static final int COUNT_BITS = 24;
+    private static final int EPOCH_BITS = 16;
+    private static final int COUNT_MAX = (1 << COUNT_BITS) - 1;
+    private static final int EPOCH_MASK = (1 << EPOCH_BITS) - 1;
+    /**
+     * 每次 maintain() 渐进整理的桶数占比，保证在 16 位纪元回绕前每个桶至少被整理一遍
+     */
+    private static final int SWEEP_ROUNDS = 4096;
     /**
      * 热点 Key 的数量
      */
@@ -22,20 +50,79 @@ public class HeavyKeeper implements TopK {
      */
     private final int depth;
     private final double[] lookupTable;
-    private final Bucket[][] buckets;
     /**
-     * 最小堆，用于存储前 k 个元素
+     * 所有小桶平铺在一个 long 数组中，第 i 行第 j 列位于 i * width + j
+     * 每个 long 打包了指纹、最后一次写入时的纪元和计数，整体通过 CAS 无锁更新
+     */
+    private final long[] buckets;
+    /**
+     * 最小堆，用于存储前 k 个元素（数组实现，Node 记录自身下标以支持 O(log k) 原地更新）
+     */
+    private final Node[] heap;
+    private int heapSize;
+    /**
+     * Key 的 64 位 hash 到堆节点的开放寻址索引，写入需持有 heapLock；
+     * 快速路径会无锁读取，仅作为是否需要加锁的提示
+     */
+    private final Node[] heapIndex;
+    private final int heapIndexMask;
+    /**
+     * 堆的写锁
      */
-    private final PriorityQueue<Node> minHeap;
+    private final ReentrantLock heapLock = new ReentrantLock();
     /**
-     * 阻塞队列，用于存储被淘汰的 Key
+     * 进入 TopK 的最小计数，堆未满时为 0
      */
-    private final BlockingQueue<Item> expelledQueue;
-    private final Random random;
-    private long total;
+    private volatile int heapThreshold;
+    /**
+     * 已发布的 TopK 不可变快照，list() 直接读取
+     */
+    private volatile List<Item> snapshot = Collections.emptyList();
+    private volatile boolean snapshotDirty;
+    /**
+     * 有界环形队列，暂存被淘汰的 Key，释放堆锁后再分发给监听器
+     */
+    private final RingBuffer<Item> expelledBuffer;
+    private final List<Consumer<Item>> expelledListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final LongAdder expelledDropped = new LongAdder();
+    private final AtomicLong expelledProcessed = new AtomicLong();
     private final int minCount;
+    /**
+     * 时间衰减：每经过一个周期计数减半，周期为 0 时只在调用 fading() 时衰减
+     */
+    private final long fadingPeriodNanos;
+    private final LongSupplier nanoTicker;
+    private final long startNanos;
+    /**
+     * 手动调用 fading() 累计推进的纪元数
+     */
+    private final AtomicLong manualEpochs = new AtomicLong();
+    /**
+     * 堆中计数已经衰减到的纪元，需持有 heapLock
+     */
+    private long heapEpoch;
+    /**
+     * 本纪元内新增的总数，以及衰减到 totalEpoch 的历史总数
+     */
+    private final LongAdder totalAdder = new LongAdder();
+    private long decayedTotal;
+    private long totalEpoch;
+    /**
+     * 渐进整理的位置，只在持有 sweepLock 时读写
+     */
+    private int sweepCursor;
+    private final ReentrantLock sweepLock = new ReentrantLock();
 
     public HeavyKeeper(int k, int width, int depth, double decay, int minCount) {
+        this(k, width, depth, decay, minCount, Duration.ZERO);
+    }
+
+    public HeavyKeeper(int k, int width, int depth, double decay, int minCount, Duration fadingPeriod) {
+        this(k, width, depth, decay, minCount, fadingPeriod, System::nanoTime);
+    }
+
+    HeavyKeeper(int k, int width, int depth, double decay, int minCount, Duration fadingPeriod, LongSupplier nanoTicker) {
         this.k = k;
         this.width = width;
         this.depth = depth;
@@ -47,192 +134,544 @@ public class HeavyKeeper implements TopK {
             lookupTable[i] = Math.pow(decay, i);
         }
 
-        this.buckets = new Bucket[depth][width];
-        for (int i = 0; i < depth; i++) {
-            for (int j = 0; j < width; j++) {
-                buckets[i][j] = new Bucket();
-            }
-        }
+        this.buckets = new long[Math.multiplyExact(depth, width)];
+
+        this.heap = new Node[k];
+        // 索引容量取不小于 4k 的 2 的幂，保证装载因子不超过 0.25
+        int indexCapacity = Integer.highestOneBit(Math.max(4 * k, 4) - 1) << 1;
+        this.heapIndex = new Node[indexCapacity];
+        this.heapIndexMask = indexCapacity - 1;
+        this.expelledBuffer = new RingBuffer<>(Math.max(1024, 4 * k));
 
-        this.minHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-        this.expelledQueue = new LinkedBlockingQueue<>();
-        this.random = new Random();
-        this.total = 0;
+        this.fadingPeriodNanos = fadingPeriod.toNanos();
+        this.nanoTicker = nanoTicker;
+        this.startNanos = nanoTicker.getAsLong();
     }
 
     @Override
     public AddResult add(String key, int increment) {
-        byte[] keyBytes = key.getBytes();
-        // 计算 hash 值
-        long itemFingerprint = hash(keyBytes);
+        return add(hash(key), key, null, 0, 0, increment);
+    }
+
+    @Override
+    public AddResult add(String hashKey, String field, int increment) {
+        // 与 add(hashKey + ":" + field) 的 hash 完全一致，但不拼接字符串
+        long h = hashChars(FNV_OFFSET_BASIS, hashKey);
+        h = (h ^ ':') * FNV_PRIME;
+        h = hashChars(h, field);
+        return add(fmix64(h), hashKey, field, 0, 0, increment);
+    }
+
+    @Override
+    public AddResult add(long userId, long blogId) {
+        // 逐位 hash 十进制数字，与 add("thumb:" + userId, String.valueOf(blogId)) 的 hash 完全一致
+        long h = hashDecimal(USER_THUMB_PREFIX_HASH, userId);
+        h = (h ^ ':') * FNV_PRIME;
+        h = hashDecimal(h, blogId);
+        return add(fmix64(h), null, null, userId, blogId, 1);
+    }
+
+    @Override
+    public List<AddResult> addAll(String hashKey, List<String> fields, int increment) {
+        long epoch = currentEpoch();
+        long prefix = (hashChars(FNV_OFFSET_BASIS, hashKey) ^ ':') * FNV_PRIME;
+        AddResult[] results = new AddResult[fields.size()];
+        long[] candidateHashes = null;
+        int[] candidateCounts = null;
+        int candidates = 0;
+        // 先无锁更新所有 field 的计数桶，记录可能进入 TopK 的 field
+        for (int i = 0; i < results.length; i++) {
+            long keyHash = fmix64(hashChars(prefix, fields.get(i)));
+            int maxCount = updateSketch(keyHash, increment, epoch);
+            if (maxCount < minCount || (maxCount < heapThreshold && findNode(keyHash) == null)) {
+                results[i] = AddResult.COLD;
+                continue;
+            }
+            if (candidateHashes == null) {
+                candidateHashes = new long[results.length];
+                candidateCounts = new int[results.length];
+            }
+            candidateHashes[i] = keyHash;
+            candidateCounts[i] = maxCount;
+            candidates++;
+        }
+        totalAdder.add((long) increment * results.length);
+
+        // 再只加一次堆锁更新全部候选
+        if (candidates > 0) {
+            heapLock.lock();
+            try {
+                decayHeap(epoch);
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == null) {
+                        results[i] = updateHeapLocked(candidateHashes[i], hashKey, fields.get(i), 0, 0, candidateCounts[i]);
+                    }
+                }
+            } finally {
+                heapLock.unlock();
+            }
+            drainExpelled();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 核心逻辑：只依赖 Key 的 64 位 hash，Key 字符串仅在进入 TopK 时才构造
+     * key 为 null 时 Key 由 userId、blogId 构造
+     */
+    private AddResult add(long keyHash, String key, String field, long userId, long blogId, int increment) {
+        long epoch = currentEpoch();
+        int maxCount = updateSketch(keyHash, increment, epoch);
+        totalAdder.add(increment);
+
+        if (maxCount < minCount) {
+            return AddResult.COLD;
+        }
+
+        // 快速路径：不在 TopK 中且计数小于堆顶，无需加锁
+        if (maxCount < heapThreshold && findNode(keyHash) == null) {
+            return AddResult.COLD;
+        }
+
+        AddResult result = updateHeap(keyHash, key, field, userId, blogId, maxCount, epoch);
+        // 在堆锁之外通知监听器
+        drainExpelled();
+        return result;
+    }
+
+    /**
+     * 无锁更新 Key 在各行中的桶，返回更新后 Key 在各行中的最大计数
+     */
+    private int updateSketch(long keyHash, int increment, long epoch) {
+        // 低 32 位与高 32 位作为两个独立 hash，按 h1 + i * h2 为每一行生成不同的桶编号
+        int h1 = (int) keyHash;
+        int h2 = (int) (keyHash >>> 32) | 1;
+        int fingerprint = (int) ((keyHash * 0x9E3779B97F4A7C15L) >>> (64 - COUNT_BITS));
+        int bucketEpoch = (int) epoch & EPOCH_MASK;
         int maxCount = 0;
 
         for (int i = 0; i < depth; i++) {
             // 计算桶的编号
-            int bucketNumber = Math.abs(hash(keyBytes)) % width;
-            // 获取桶
-            Bucket bucket = buckets[i][bucketNumber];
+            int index = i * width + ((h1 + i * h2) & Integer.MAX_VALUE) % width;
+            long current = (long) BUCKETS.getVolatile(buckets, index);
 
-            synchronized (bucket) {
-                if (bucket.count == 0) {
+            while (true) {
+                // 读取时按桶上次写入以来经过的纪元数惰性衰减
+                int count = decayedCount(current, bucketEpoch);
+                // 更新后当前 Key 在该桶中的计数，桶不属于当前 Key 时为 0
+                int ownCount = 0;
+                long next;
+                if (count == 0) {
                     // 如果桶为空，则初始化桶
-                    bucket.fingerprint = itemFingerprint;
-                    bucket.count = increment;
-                    maxCount = Math.max(maxCount, increment);
-                } else if (bucket.fingerprint == itemFingerprint) {
+                    ownCount = Math.min(increment, COUNT_MAX);
+                    next = pack(fingerprint, bucketEpoch, ownCount);
+                } else if (fingerprint(current) == fingerprint) {
                     // 如果桶中已经存在该 key，则更新该桶的计数器
-                    bucket.count += increment;
-                    maxCount = Math.max(maxCount, bucket.count);
+                    ownCount = (int) Math.min((long) count + increment, COUNT_MAX);
+                    next = pack(fingerprint, bucketEpoch, ownCount);
                 } else {
-                    // 如果桶中已经存在该 key，计数衰减机制
+                    // 如果桶被其他 key 占用，计数衰减机制
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
                     for (int j = 0; j < increment; j++) {
                         // 计算衰减概率
-                        double decay = bucket.count < LOOKUP_TABLE_SIZE ?
-                                lookupTable[bucket.count] :
+                        double decay = count < LOOKUP_TABLE_SIZE ?
+                                lookupTable[count] :
                                 lookupTable[LOOKUP_TABLE_SIZE - 1];
-                        if (random.nextDouble() < decay) {
-                            // 如果命中，则计数器减一
-                            bucket.count--;
-                            // 如果计数器为零，则进行替换，更新桶信息
-                            if (bucket.count == 0) {
-                                bucket.fingerprint = itemFingerprint;
-                                bucket.count = increment - j;
-                                maxCount = Math.max(maxCount, bucket.count);
-                                break;
-                            }
+                        // 如果命中，则计数器减一；减到零则由当前 key 接管该桶
+                        if (random.nextDouble() < decay && --count == 0) {
+                            ownCount = Math.min(increment - j, COUNT_MAX);
+                            break;
                         }
                     }
+                    next = ownCount > 0 ? pack(fingerprint, bucketEpoch, ownCount)
+                            : pack(fingerprint(current), bucketEpoch, count);
                 }
+                if (next == current || BUCKETS.compareAndSet(buckets, index, current, next)) {
+                    maxCount = Math.max(maxCount, ownCount);
+                    break;
+                }
+                // 被其他线程抢先修改，基于最新值重试
+                current = (long) BUCKETS.getVolatile(buckets, index);
             }
         }
 
-        total += increment;
+        return maxCount;
+    }
+
+    private AddResult updateHeap(long keyHash, String key, String field, long userId, long blogId, int maxCount, long epoch) {
+        heapLock.lock();
+        try {
+            decayHeap(epoch);
+            return updateHeapLocked(keyHash, key, field, userId, blogId, maxCount);
+        } finally {
+            heapLock.unlock();
+        }
+    }
 
-        if (maxCount < minCount) {
-            return new AddResult(null, false, null);
-        }
-
-        synchronized (minHeap) {
-            boolean isHot = false;
-            String expelled = null;
-            // 判断是否为热点 Key
-            Optional<Node> existing = minHeap.stream()
-                    .filter(n -> n.key.equals(key))
-                    .findFirst();
-
-            if (existing.isPresent()) {
-                // 如果存在，则更新
-                minHeap.remove(existing.get());
-                minHeap.add(new Node(key, maxCount));
-                isHot = true;
-            } else {
-                // 如果不存在，则判断是否为热点 Key
-                // 如果当前热点 Key 的数量小于 k，或者当前 Key 的计数大于等于最小堆中的最小 Key 的计数，则将当前 Key 添加到最小堆中
-                // peek 返回队列头部的元素 如果队列为空，则返回null
-                if (minHeap.size() < k || maxCount >= Objects.requireNonNull(minHeap.peek()).count) {
-                    Node newNode = new Node(key, maxCount);
-                    // 如果最小堆的数量大于等于 k，则将最小堆中的最小 Key 移除，并将当前 Key 添加到最小堆中
-                    if (minHeap.size() >= k) {
-                        // 获取最小堆中的最小 Key
-                        expelled = minHeap.poll().key;
-                        // 将最小堆中的最小 Key 添加到阻塞队列中
-                        // offer 添加一个元素并返回true 如果队列已满，则返回false
-                        expelledQueue.offer(new Item(expelled, maxCount));
-                    }
-                    minHeap.add(newNode);
-                    isHot = true;
-                }
-            }
+    /**
+     * 需持有 heapLock，且堆已衰减到当前纪元
+     */
+    private AddResult updateHeapLocked(long keyHash, String key, String field, long userId, long blogId, int maxCount) {
+        Node existing = findNode(keyHash);
+        if (existing != null) {
+            // 如果存在，则原地更新计数并调整位置，O(log k)
+            existing.count = maxCount;
+            siftUp(existing.index);
+            siftDown(existing.index);
+            onHeapChanged();
+            return AddResult.HOT;
+        }
+        if (heapSize >= k && maxCount < heap[0].count) {
+            return AddResult.COLD;
+        }
 
-            return new AddResult(expelled, isHot, key);
+        // 如果当前热点 Key 的数量小于 k，或者当前 Key 的计数大于等于堆顶 Key 的计数，则将当前 Key 加入最小堆
+        // Key 字符串只在进入 TopK 时构造一次
+        String nodeKey = key == null ? ThumbConstant.USER_THUMB_KEY_PREFIX + userId + ":" + blogId
+                : field == null ? key : key + ":" + field;
+        Node newNode = new Node(keyHash, nodeKey, maxCount);
+        String expelled = null;
+        if (heapSize >= k) {
+            // 堆已满，用新 Key 替换堆顶的最小 Key
+            Node min = heap[0];
+            expelled = min.key;
+            removeNode(min.hash);
+            offerExpelled(new Item(expelled, min.count));
+            heap[0] = newNode;
+            putNode(newNode);
+            siftDown(0);
+        } else {
+            heap[heapSize++] = newNode;
+            putNode(newNode);
+            siftUp(heapSize - 1);
         }
+        onHeapChanged();
+        return expelled == null ? AddResult.HOT : AddResult.expelled(expelled);
     }
 
 
     @Override
     public List<Item> list() {
-        synchronized (minHeap) {
-            List<Item> result = new ArrayList<>(minHeap.size());
-            for (Node node : minHeap) {
-                result.add(new Item(node.key, node.count));
+        // 读取已发布的快照；有变更且写锁空闲时才顺带重建，永不阻塞在写锁上
+        if (snapshotDirty && heapLock.tryLock()) {
+            try {
+                if (snapshotDirty) {
+                    snapshotDirty = false;
+                    snapshot = buildSnapshot();
+                }
+            } finally {
+                heapLock.unlock();
             }
-            result.sort((a, b) -> Integer.compare(b.count(), a.count()));
-            return result;
         }
+        return snapshot;
+    }
+
+    @Override
+    public void addExpelledListener(Consumer<Item> listener) {
+        expelledListeners.add(listener);
     }
 
     @Override
-    public BlockingQueue<Item> expelled() {
-        return expelledQueue;
+    public long expelledDropped() {
+        return expelledDropped.sum();
     }
 
+    @Override
+    public long expelledProcessed() {
+        return expelledProcessed.get();
+    }
+
+    /**
+     * 立即推进一个纪元，所有计数减半
+     * 桶在下次被访问时惰性衰减，这里只需 O(k) 地衰减堆
+     */
     @Override
     public void fading() {
-        for (Bucket[] row : buckets) {
-            for (Bucket bucket : row) {
-                synchronized (bucket) {
-                    bucket.count = bucket.count >> 1;
-                }
+        manualEpochs.incrementAndGet();
+        maintain();
+    }
+
+    @Override
+    public void maintain() {
+        long epoch = currentEpoch();
+        heapLock.lock();
+        try {
+            decayHeap(epoch);
+        } finally {
+            heapLock.unlock();
+        }
+        drainExpelled();
+        // 渐进整理一小段桶，防止长期未被访问的桶在 16 位纪元回绕后衰减不足；
+        // 定时任务重叠执行时由正在整理的线程完成，其余线程跳过
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            sweep((int) epoch & EPOCH_MASK);
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    /**
+     * 整理下一段桶，需持有 sweepLock
+     */
+    private void sweep(int bucketEpoch) {
+        int chunk = Math.max(1, buckets.length / SWEEP_ROUNDS);
+        int from = sweepCursor;
+        int to = Math.min(from + chunk, buckets.length);
+        for (int i = from; i < to; i++) {
+            long current;
+            long next;
+            do {
+                current = (long) BUCKETS.getVolatile(buckets, i);
+                next = pack(fingerprint(current), bucketEpoch, decayedCount(current, bucketEpoch));
+            } while (next != current && !BUCKETS.compareAndSet(buckets, i, current, next));
+        }
+        sweepCursor = to == buckets.length ? 0 : to;
+    }
+
+    @Override
+    public long total() {
+        heapLock.lock();
+        try {
+            decayHeap(currentEpoch());
+            return decayedTotal + totalAdder.sum();
+        } finally {
+            heapLock.unlock();
+        }
+    }
+
+    private long currentEpoch() {
+        long epoch = manualEpochs.get();
+        if (fadingPeriodNanos > 0) {
+            epoch += (nanoTicker.getAsLong() - startNanos) / fadingPeriodNanos;
+        }
+        return epoch;
+    }
+
+    /**
+     * 把堆中的计数和总数衰减到指定纪元（需持有 heapLock），只涉及 k 个节点
+     * 衰减后低于 minCount 的 Key 不再视为热点，从堆中淘汰
+     */
+    private void decayHeap(long epoch) {
+        if (epoch <= heapEpoch) {
+            return;
+        }
+        int shift = (int) Math.min(epoch - heapEpoch, Integer.SIZE - 1);
+        heapEpoch = epoch;
+        // 计数整体右移不改变堆中元素的相对顺序，无需重建堆
+        for (int i = 0; i < heapSize; i++) {
+            heap[i].count = heap[i].count >> shift;
+        }
+        while (heapSize > 0 && heap[0].count < minCount) {
+            Node min = heap[0];
+            removeNode(min.hash);
+            offerExpelled(new Item(min.key, min.count));
+            heap[0] = heap[--heapSize];
+            heap[heapSize] = null;
+            if (heapSize > 0) {
+                siftDown(0);
+            }
+        }
+        long totalShift = Math.min(epoch - totalEpoch, Long.SIZE - 1);
+        totalEpoch = epoch;
+        decayedTotal = (decayedTotal + totalAdder.sumThenReset()) >> totalShift;
+        onHeapChanged();
+    }
+
+    /**
+     * 需持有 heapLock；队列已满时丢弃并计数，不阻塞写入
+     */
+    private void offerExpelled(Item item) {
+        if (!expelledBuffer.offer(item)) {
+            expelledDropped.increment();
+        }
+    }
+
+    /**
+     * 把暂存的淘汰 Key 分发给监听器，同一时刻只有一个线程在分发，其余线程直接返回
+     */
+    private void drainExpelled() {
+        while (!expelledBuffer.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                expelledProcessed.addAndGet(expelledBuffer.drain(this::notifyExpelled));
+            } finally {
+                draining.set(false);
             }
         }
+    }
 
-        synchronized (minHeap) {
-            PriorityQueue<Node> newHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
-            for (Node node : minHeap) {
-                newHeap.add(new Node(node.key, node.count >> 1));
+    private void notifyExpelled(Item item) {
+        for (Consumer<Item> listener : expelledListeners) {
+            try {
+                listener.accept(item);
+            } catch (RuntimeException e) {
+                log.error("处理被淘汰的热点 Key 失败：{}", item.key(), e);
             }
-            minHeap.clear();
-            minHeap.addAll(newHeap);
         }
+    }
 
-        total = total >> 1;
+    private static long pack(int fingerprint, int epoch, int count) {
+        return ((long) fingerprint << (EPOCH_BITS + COUNT_BITS)) | ((long) epoch << COUNT_BITS) | count;
     }
 
-    @Override
-    public long total() {
-        return total;
+    private static int fingerprint(long bucket) {
+        return (int) (bucket >>> (EPOCH_BITS + COUNT_BITS));
     }
 
-    private static class Bucket {
-        /**
-         * 小桶的指纹
-         */
-        long fingerprint;
-        /**
-         * 小桶的计数器
-         */
-        int count;
+    /**
+     * 桶的计数按其纪元与当前纪元之差衰减（每个纪元减半）
+     */
+    private static int decayedCount(long bucket, int epoch) {
+        int count = (int) bucket & COUNT_MAX;
+        int elapsed = (epoch - ((int) (bucket >>> COUNT_BITS) & EPOCH_MASK)) & EPOCH_MASK;
+        return elapsed >= COUNT_BITS ? 0 : count >> elapsed;
     }
 
     private static class Node {
+        final long hash;
         final String key;
-        final int count;
+        int count;
+        /**
+         * 在堆数组中的下标
+         */
+        int index;
 
-        Node(String key, int count) {
+        Node(long hash, String key, int count) {
+            this.hash = hash;
             this.key = key;
             this.count = count;
         }
     }
 
-    private static int hash(byte[] data) {
-        return HashUtil.murmur32(data);
+    private Node findNode(long keyHash) {
+        for (int i = (int) keyHash & heapIndexMask; ; i = (i + 1) & heapIndexMask) {
+            Node node = heapIndex[i];
+            if (node == null || node.hash == keyHash) {
+                return node;
+            }
+        }
+    }
+
+    private void putNode(Node node) {
+        int i = (int) node.hash & heapIndexMask;
+        while (heapIndex[i] != null) {
+            i = (i + 1) & heapIndexMask;
+        }
+        heapIndex[i] = node;
+    }
+
+    private void removeNode(long keyHash) {
+        int i = (int) keyHash & heapIndexMask;
+        while (heapIndex[i].hash != keyHash) {
+            i = (i + 1) & heapIndexMask;
+        }
+        // 线性探测的删除：把后续同一探测链上的节点前移，避免留下空洞
+        for (int j = (i + 1) & heapIndexMask; heapIndex[j] != null; j = (j + 1) & heapIndexMask) {
+            int home = (int) heapIndex[j].hash & heapIndexMask;
+            if (((j - home) & heapIndexMask) >= ((j - i) & heapIndexMask)) {
+                heapIndex[i] = heapIndex[j];
+                i = j;
+            }
+        }
+        heapIndex[i] = null;
+    }
+
+    private void siftUp(int i) {
+        Node node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Node p = heap[parent];
+            if (p.count <= node.count) {
+                break;
+            }
+            heap[i] = p;
+            p.index = i;
+            i = parent;
+        }
+        heap[i] = node;
+        node.index = i;
+    }
+
+    private void siftDown(int i) {
+        Node node = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < heapSize && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            Node c = heap[child];
+            if (node.count <= c.count) {
+                break;
+            }
+            heap[i] = c;
+            c.index = i;
+            i = child;
+        }
+        heap[i] = node;
+        node.index = i;
+    }
+
+    /**
+     * 堆发生变化后调用（需持有 heapLock）：更新入堆门槛并标记快照过期
+     */
+    private void onHeapChanged() {
+        heapThreshold = heapSize < k ? 0 : heap[0].count;
+        snapshotDirty = true;
+    }
+
+    private List<Item> buildSnapshot() {
+        List<Item> result = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            result.add(new Item(heap[i].key, heap[i].count));
+        }
+        result.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 直接对 UTF-16 字符做 FNV-1a，再经 murmur3 fmix64 混淆，避免 getBytes 分配
+     */
+    private static long hash(String key) {
+        return fmix64(hashChars(FNV_OFFSET_BASIS, key));
     }
-}
 
-// 新增返回结果类
-@Data
-class AddResult {
-    // 被挤出的 key
-    private final String expelledKey;
-    // 当前 key 是否进入 TopK
-    private final boolean isHotKey;
-    // 当前操作的 key
-    private final String currentKey;
+    private static long hashChars(long h, String s) {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
 
-    public AddResult(String expelledKey, boolean isHotKey, String currentKey) {
-        this.expelledKey = expelledKey;
-        this.isHotKey = isHotKey;
-        this.currentKey = currentKey;
+    /**
+     * 与 hashChars(h, Long.toString(value)) 相同，但不构造字符串
+     */
+    private static long hashDecimal(long h, long value) {
+        // 统一按负数取各位数字，Long.MIN_VALUE 取反会溢出
+        if (value < 0) {
+            h = (h ^ '-') * FNV_PRIME;
+        } else {
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor <= -10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            h = (h ^ ('0' - value / divisor % 10)) * FNV_PRIME;
+        }
+        return h;
     }
 
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
 }
@@ -0,0 +1,133 @@
+package com.shousi.thumbweb.manager.cache;
+
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.constant.HotKeyConstant;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群热点聚合：各节点定期把本地 TopK 上报到 Redis，持有租约的节点合并出全局 TopK，
+ * 通过 Redis pub/sub 广播给所有节点预加载到本地缓存，解决热点分散到各节点后都达不到阈值的问题
+ */
+@Component
+@Slf4j
+public class HotKeyClusterManager implements MessageListener {
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private TopK hotKeyDetector;
+
+    @Resource
+    private CacheProperties cacheProperties;
+
+    @PostConstruct
+    public void subscribe() {
+        if (cacheProperties.getCluster().isEnabled()) {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(HotKeyConstant.GLOBAL_HOT_KEY_CHANNEL));
+        }
+    }
+
+    @Scheduled(fixedRateString = "${thumb.cache.cluster.sync-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        CacheProperties.Cluster cluster = cacheProperties.getCluster();
+        if (!cluster.isEnabled()) {
+            return;
+        }
+        publishLocalSnapshot(cluster);
+        if (tryAcquireMergerLease(cluster)) {
+            mergeAndBroadcast(cluster);
+        }
+    }
+
+    /**
+     * 上报本地 TopK 快照，并刷新节点心跳
+     * 快照在一个脚本中整体替换并设置过期时间；计数写为十进制字符串，合并时按 JSON 数字读取
+     */
+    private void publishLocalSnapshot(CacheProperties.Cluster cluster) {
+        String nodeKey = RedisKeyUtil.getHotKeyNodeKey(cluster.getNodeId());
+        List<Item> items = hotKeyDetector.list();
+        String[] args = new String[items.size() * 2 + 1];
+        args[0] = String.valueOf(snapshotTtl(cluster).toMillis());
+        for (int i = 0; i < items.size(); i++) {
+            args[i * 2 + 1] = items.get(i).key();
+            args[i * 2 + 2] = String.valueOf(items.get(i).count());
+        }
+        stringRedisTemplate.execute(RedisLuaScriptConstant.REPLACE_HOT_KEY_SNAPSHOT_SCRIPT, List.of(nodeKey), (Object[]) args);
+        redisTemplate.opsForZSet().add(HotKeyConstant.NODES_KEY, cluster.getNodeId(), System.currentTimeMillis());
+    }
+
+    /**
+     * 同一时刻只有一个节点负责合并，租约过期后由其他节点接替；
+     * 获取与续期在同一个脚本中比较持有者，不会续期已被其他节点抢到的租约
+     */
+    private boolean tryAcquireMergerLease(CacheProperties.Cluster cluster) {
+        Long acquired = stringRedisTemplate.execute(RedisLuaScriptConstant.ACQUIRE_LEASE_SCRIPT,
+                List.of(HotKeyConstant.MERGER_LEASE_KEY), cluster.getNodeId(), String.valueOf(snapshotTtl(cluster).toMillis()));
+        return Long.valueOf(1).equals(acquired);
+    }
+
+    private void mergeAndBroadcast(CacheProperties.Cluster cluster) {
+        long deadline = System.currentTimeMillis() - snapshotTtl(cluster).toMillis();
+        // 清理已下线的节点
+        redisTemplate.opsForZSet().removeRangeByScore(HotKeyConstant.NODES_KEY, 0, deadline);
+        Set<Object> nodeIds = redisTemplate.opsForZSet().range(HotKeyConstant.NODES_KEY, 0, -1);
+        if (nodeIds == null || nodeIds.isEmpty()) {
+            return;
+        }
+        Map<String, Long> merged = new HashMap<>();
+        for (Object nodeId : nodeIds) {
+            Map<Object, Object> snapshot = redisTemplate.opsForHash().entries(RedisKeyUtil.getHotKeyNodeKey(nodeId.toString()));
+            snapshot.forEach((key, count) -> merged.merge(key.toString(), ((Number) count).longValue(), Long::sum));
+        }
+        List<String> globalHotKeys = merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(cluster.getTopK())
+                .map(Map.Entry::getKey)
+                .toList();
+        redisTemplate.convertAndSend(HotKeyConstant.GLOBAL_HOT_KEY_CHANNEL, new ArrayList<>(globalHotKeys));
+        log.debug("合并 {} 个节点的热点 Key，广播全局 TopK {} 个", nodeIds.size(), globalHotKeys.size());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object keys = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (keys instanceof Collection<?> collection) {
+                cacheManager.refreshGlobalHotKeys((Collection<String>) collection);
+            }
+        } catch (RuntimeException e) {
+            log.error("处理全局热点 Key 广播失败", e);
+        }
+    }
+
+    private Duration snapshotTtl(CacheProperties.Cluster cluster) {
+        return Duration.ofSeconds(cluster.getSyncSeconds() * 3);
+    }
+}
@@ -1,7 +1,7 @@
 package com.shousi.thumbweb.manager.cache;
 
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 public interface TopK {
 
@@ -13,6 +13,36 @@ public interface TopK {
      */
     AddResult add(String key, int increment);
 
+    /**
+     * 添加复合元素 hashKey:field，与 add(hashKey + ":" + field, increment) 等价，但无需拼接字符串
+     *
+     * @param hashKey
+     * @param field
+     * @param increment
+     * @return
+     */
+    AddResult add(String hashKey, String field, int increment);
+
+    /**
+     * 添加用户对博客的点赞状态元素，计数加一，与 add("thumb:" + userId, String.valueOf(blogId), 1) 等价，但不构造字符串
+     * 进入 TopK 后以 thumb:{userId}:{blogId} 的形式出现在 list() 中
+     *
+     * @param userId
+     * @param blogId
+     * @return
+     */
+    AddResult add(long userId, long blogId);
+
+    /**
+     * 批量添加同一个 hashKey 下的多个 field，计数桶无锁更新，TopK 堆只加一次锁
+     *
+     * @param hashKey
+     * @param fields
+     * @param increment
+     * @return 与 fields 一一对应的结果
+     */
+    List<AddResult> addAll(String hashKey, List<String> fields, int increment);
+
     /**
      * 返回当前 TopK 元素的列表
      *
@@ -21,16 +51,37 @@ public interface TopK {
     List<Item> list();
 
     /**
-     * 获取被挤出的 TopK 的元素的队列
+     * 注册监听器，Key 被挤出 TopK 或衰减出 TopK 时回调
+     * 回调在添加元素的线程上、释放内部锁之后执行，应保持轻量
+     *
+     * @param listener
+     */
+    void addExpelledListener(Consumer<Item> listener);
+
+    /**
+     * 因暂存队列已满而丢弃的淘汰事件数
+     *
+     * @return
+     */
+    long expelledDropped();
+
+    /**
+     * 已分发给监听器的淘汰事件数
      *
      * @return
      */
-    BlockingQueue<Item> expelled();
+    long expelledProcessed();
 
     /**
-     * 对所有计数进行衰减
+     * 立即对所有计数进行一次衰减（减半）
      */
     void fading();
 
+    /**
+     * 推进时间衰减，由定时任务周期调用
+     * 只处理 TopK 本身和一小段桶，不做全量扫描，不会阻塞添加元素的线程
+     */
+    void maintain();
+
     long total();
 }
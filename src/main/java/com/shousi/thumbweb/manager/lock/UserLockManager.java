@@ -0,0 +1,157 @@
+package com.shousi.thumbweb.manager.lock;
+
+import cn.hutool.core.util.IdUtil;
+import com.shousi.thumbweb.config.LockProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 用户级互斥锁：固定数量的 ReentrantLock 分段，按用户 ID 映射，内存占用与用户数无关，
+ * 等待时不会钉住虚拟线程的载体线程；redis 模式下额外持有 Redis 租约，实现多节点互斥
+ */
+@Component
+@Slf4j
+public class UserLockManager {
+
+    private static final long LEASE_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private ReentrantLock[] locks;
+    private int mask;
+
+    /**
+     * 锁等待统计
+     */
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    @Resource
+    private LockProperties lockProperties;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @PostConstruct
+    public void init() {
+        int stripes = Integer.highestOneBit(Math.max(lockProperties.getStripes(), 2) - 1) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = stripes - 1;
+    }
+
+    /**
+     * 持有用户锁执行操作
+     *
+     * @param userId
+     * @param action
+     * @return action 的返回值
+     */
+    public <T> T executeWithLock(Long userId, Supplier<T> action) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(lockProperties.getWaitMillis());
+        ReentrantLock lock = locks[stripe(userId)];
+        if (!lock.tryLock()) {
+            contended.increment();
+            try {
+                if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    timeouts.increment();
+                    throw new RuntimeException("操作过于频繁，请稍后重试");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("获取锁被中断");
+            }
+        }
+        try {
+            if (!"redis".equals(lockProperties.getMode())) {
+                recordWait(start);
+                return action.get();
+            }
+            // 本地分段锁保证同一节点内同一用户只有一个线程竞争租约
+            String leaseKey = RedisKeyUtil.getUserLockKey(userId);
+            String token = IdUtil.fastSimpleUUID();
+            acquireLease(leaseKey, token, deadline);
+            recordWait(start);
+            try {
+                return action.get();
+            } finally {
+                stringRedisTemplate.execute(RedisLuaScriptConstant.RELEASE_LOCK_SCRIPT, List.of(leaseKey), token);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquireLease(String leaseKey, String token, long deadline) {
+        Duration lease = Duration.ofMillis(lockProperties.getLeaseMillis());
+        boolean first = true;
+        while (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, token, lease))) {
+            if (first) {
+                contended.increment();
+                first = false;
+            }
+            if (System.nanoTime() + LEASE_RETRY_NANOS > deadline) {
+                timeouts.increment();
+                throw new RuntimeException("操作过于频繁，请稍后重试");
+            }
+            LockSupport.parkNanos(LEASE_RETRY_NANOS);
+        }
+    }
+
+    private void recordWait(long start) {
+        long waited = System.nanoTime() - start;
+        acquired.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+
+    private int stripe(Long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    public long getContended() {
+        return contended.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * 每分钟输出一次锁等待统计，并重置最大等待时间
+     */
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.MINUTES)
+    public void logStats() {
+        long count = acquired.sum();
+        if (count == 0) {
+            return;
+        }
+        log.info("用户锁：获取 {} 次，竞争 {} 次，超时 {} 次，平均等待 {} μs，最大等待 {} μs",
+                count, contended.sum(), timeouts.sum(),
+                waitNanos.sum() / count / 1000, maxWaitNanos.getThenReset() / 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package com.shousi.thumbweb.manager.state;
+
+import com.shousi.thumbweb.config.LongRedisSerializer;
+import com.shousi.thumbweb.config.ThumbStateProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 按博客 ID 分桶：{thumb:{userId}}:{bucket} -> {blogId: 点赞记录 ID}
+ * <p>
+ * 同一用户的点赞分散到 buckets 个小 hash，点赞数不超过 buckets * 128 时每个桶都保持 listpack 编码，
+ * 避免重度用户的大 hash 退化为 hashtable；hash tag 为逻辑 hashKey，同一用户的所有桶在集群中位于同一个 slot，
+ * Lua 脚本可以同时操作
+ */
+@Component
+@ConditionalOnProperty(prefix = "thumb.state", name = "layout", havingValue = "bucketed")
+public class BucketedThumbStateStore implements ThumbStateStore {
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private ThumbStateProperties thumbStateProperties;
+
+    private int bucketMask;
+
+    @PostConstruct
+    public void init() {
+        int buckets = thumbStateProperties.getBuckets();
+        if (buckets <= 0 || Integer.bitCount(buckets) != 1) {
+            throw new RuntimeException("thumb.state.buckets 必须是 2 的幂");
+        }
+        bucketMask = buckets - 1;
+    }
+
+    @Override
+    public String getKey(String hashKey, String field) {
+        int h = field.hashCode();
+        return "{" + hashKey + "}:" + ((h ^ (h >>> 16)) & bucketMask);
+    }
+
+    @Override
+    public Long get(String hashKey, String field) {
+        return thumbRedisTemplate.<String, Long>opsForHash().get(getKey(hashKey, field), field);
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<Long> multiGet(String hashKey, List<String> fields) {
+        Map<String, List<String>> bucketFields = groupByKey(hashKey, fields);
+        if (bucketFields.size() == 1) {
+            return thumbRedisTemplate.<String, Long>opsForHash().multiGet(bucketFields.keySet().iterator().next(), fields);
+        }
+        // 各桶的 HMGET 合并为一次 Lua 调用，服务端一次执行，比 pipeline 逐条发送的开销更小
+        List<String> keys = new ArrayList<>(bucketFields.keySet());
+        List<String> args = new ArrayList<>(keys.size() + fields.size());
+        bucketFields.values().forEach(keyFields -> args.add(String.valueOf(keyFields.size())));
+        bucketFields.values().forEach(args::addAll);
+        List<Long> results = (List<Long>) thumbRedisTemplate.execute(RedisLuaScriptConstant.MULTI_HMGET_SCRIPT,
+                StringRedisSerializer.UTF_8, (RedisSerializer) LongRedisSerializer.INSTANCE, keys, args.toArray());
+        Map<String, Long> valueMap = new HashMap<>();
+        int i = 0;
+        for (List<String> keyFields : bucketFields.values()) {
+            for (String field : keyFields) {
+                valueMap.put(field, results.get(i++));
+            }
+        }
+        List<Long> values = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            values.add(valueMap.get(field));
+        }
+        return values;
+    }
+
+    @Override
+    public void put(String hashKey, String field, Long value) {
+        thumbRedisTemplate.<String, Long>opsForHash().put(getKey(hashKey, field), field, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(String hashKey, Map<String, Long> values) {
+        Map<String, Map<String, Long>> bucketValues = new LinkedHashMap<>();
+        values.forEach((field, value) -> bucketValues.computeIfAbsent(getKey(hashKey, field), k -> new HashMap<>()).put(field, value));
+        thumbRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Long> redisOperations = (RedisOperations<String, Long>) operations;
+                bucketValues.forEach((key, keyValues) -> redisOperations.<String, Long>opsForHash().putAll(key, keyValues));
+                return null;
+            }
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void delete(String hashKey, Collection<String> fields) {
+        Map<String, List<String>> bucketFields = groupByKey(hashKey, fields);
+        thumbRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Long> redisOperations = (RedisOperations<String, Long>) operations;
+                bucketFields.forEach((key, keyFields) -> redisOperations.<String, Long>opsForHash().delete(key, keyFields.toArray()));
+                return null;
+            }
+        });
+    }
+
+    private Map<String, List<String>> groupByKey(String hashKey, Collection<String> fields) {
+        Map<String, List<String>> bucketFields = new LinkedHashMap<>();
+        for (String field : fields) {
+            bucketFields.computeIfAbsent(getKey(hashKey, field), k -> new ArrayList<>()).add(field);
+        }
+        return bucketFields;
+    }
+}
@@ -0,0 +1,52 @@
+package com.shousi.thumbweb.manager.state;
+
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每个用户一个 hash：thumb:{userId} -> {blogId: 点赞记录 ID}
+ * 点赞数超过 hash-max-listpack-entries（默认 128）后转为 hashtable 编码，每个 field 的内存约增加到 4 倍
+ */
+@Component
+@ConditionalOnProperty(prefix = "thumb.state", name = "layout", havingValue = "hash", matchIfMissing = true)
+public class HashThumbStateStore implements ThumbStateStore {
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Override
+    public String getKey(String hashKey, String field) {
+        return hashKey;
+    }
+
+    @Override
+    public Long get(String hashKey, String field) {
+        return thumbRedisTemplate.<String, Long>opsForHash().get(hashKey, field);
+    }
+
+    @Override
+    public List<Long> multiGet(String hashKey, List<String> fields) {
+        return thumbRedisTemplate.<String, Long>opsForHash().multiGet(hashKey, fields);
+    }
+
+    @Override
+    public void put(String hashKey, String field, Long value) {
+        thumbRedisTemplate.<String, Long>opsForHash().put(hashKey, field, value);
+    }
+
+    @Override
+    public void putAll(String hashKey, Map<String, Long> values) {
+        thumbRedisTemplate.<String, Long>opsForHash().putAll(hashKey, values);
+    }
+
+    @Override
+    public void delete(String hashKey, Collection<String> fields) {
+        thumbRedisTemplate.<String, Long>opsForHash().delete(hashKey, fields.toArray());
+    }
+}
@@ -0,0 +1,38 @@
+package com.shousi.thumbweb.manager.state;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户点赞状态存储：逻辑上每个用户一个 hash（hashKey 为 thumb:{userId}，field 为博客 ID），
+ * 实际存放在哪个 Redis key 由具体布局决定，field 始终是博客 ID，Lua 脚本只需改用 getKey 得到的 key
+ */
+public interface ThumbStateStore {
+
+    /**
+     * 逻辑 hashKey + field 实际所在的 Redis key
+     *
+     * @param hashKey
+     * @param field
+     * @return
+     */
+    String getKey(String hashKey, String field);
+
+    Long get(String hashKey, String field);
+
+    /**
+     * 批量读取，无论分布在几个 key 上都只有一次网络往返
+     *
+     * @param hashKey
+     * @param fields
+     * @return 与 fields 一一对应的值，不存在为 null
+     */
+    List<Long> multiGet(String hashKey, List<String> fields);
+
+    void put(String hashKey, String field, Long value);
+
+    void putAll(String hashKey, Map<String, Long> values);
+
+    void delete(String hashKey, Collection<String> fields);
+}
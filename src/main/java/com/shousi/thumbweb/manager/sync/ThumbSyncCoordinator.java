@@ -0,0 +1,171 @@
+package com.shousi.thumbweb.manager.sync;
+
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞同步多节点分工：各节点定期在 Redis 上报心跳，按存活节点集合以 rendezvous 哈希把分片分配给节点，
+ * 节点只同步自己持有租约的分片。分配结果只取决于节点集合，节点加入或下线时只有涉及的分片换主；
+ * 租约保证各节点看到的节点集合暂时不一致时，同一分片也只有一个节点在同步
+ */
+@Component
+@Slf4j
+public class ThumbSyncCoordinator {
+
+    /**
+     * 持有租约的分片
+     */
+    private final Set<Integer> ownedShards = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已不归本节点、等待释放租约的分片，推迟一个心跳周期释放，让正在写库的一块数据先提交
+     */
+    private final Set<Integer> releasingShards = ConcurrentHashMap.newKeySet();
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @Resource
+    private CacheProperties cacheProperties;
+
+    @Scheduled(fixedRateString = "${thumb.sync.coordinator.heartbeat-millis:2000}", timeUnit = TimeUnit.MILLISECONDS)
+    public void heartbeat() {
+        ThumbSyncProperties.Coordinator coordinator = thumbSyncProperties.getCoordinator();
+        if (!coordinator.isEnabled()) {
+            return;
+        }
+        String nodeId = cacheProperties.getCluster().getNodeId();
+        long now = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForZSet().add(ThumbConstant.SYNC_NODES_KEY, nodeId, now);
+            // 清理已下线的节点
+            stringRedisTemplate.opsForZSet().removeRangeByScore(ThumbConstant.SYNC_NODES_KEY, 0, now - coordinator.getNodeTtlMillis());
+            Set<String> nodeIds = stringRedisTemplate.opsForZSet().range(ThumbConstant.SYNC_NODES_KEY, 0, -1);
+            rebalance(nodeId, nodeIds == null || nodeIds.isEmpty() ? List.of(nodeId) : nodeIds, coordinator);
+        } catch (RuntimeException e) {
+            // 无法续约时放弃所有分片，租约过期后由其他节点接手
+            log.error("点赞同步心跳失败，放弃持有的 {} 个分片", ownedShards.size(), e);
+            ownedShards.clear();
+        }
+    }
+
+    private void rebalance(String nodeId, Collection<String> nodeIds, ThumbSyncProperties.Coordinator coordinator) {
+        for (Integer shard : releasingShards) {
+            releasingShards.remove(shard);
+            if (!ownedShards.contains(shard)) {
+                stringRedisTemplate.execute(RedisLuaScriptConstant.RELEASE_LOCK_SCRIPT, List.of(RedisKeyUtil.getSyncLeaseKey(shard)), nodeId);
+            }
+        }
+        int shards = thumbSyncProperties.getShards();
+        for (int shard = 0; shard < shards; shard++) {
+            if (nodeId.equals(owner(nodeIds, shard))) {
+                Long acquired = stringRedisTemplate.execute(RedisLuaScriptConstant.ACQUIRE_LEASE_SCRIPT,
+                        List.of(RedisKeyUtil.getSyncLeaseKey(shard)), nodeId, String.valueOf(coordinator.getLeaseMillis()));
+                if (Long.valueOf(1).equals(acquired)) {
+                    releasingShards.remove(shard);
+                    if (ownedShards.add(shard)) {
+                        log.info("点赞同步：节点 {} 接手分片 {}", nodeId, shard);
+                    }
+                } else {
+                    // 原持有者尚未释放或租约未过期，下个周期重试
+                    ownedShards.remove(shard);
+                }
+            } else if (ownedShards.remove(shard)) {
+                releasingShards.add(shard);
+                log.info("点赞同步：节点 {} 交出分片 {}", nodeId, shard);
+            }
+        }
+    }
+
+    /**
+     * 本节点是否负责同步该分片
+     *
+     * @param shard
+     * @return
+     */
+    public boolean owns(int shard) {
+        if (!thumbSyncProperties.getCoordinator().isEnabled()) {
+            return true;
+        }
+        return ownedShards.contains(Math.floorMod(shard, thumbSyncProperties.getShards()));
+    }
+
+    /**
+     * 本节点是否负责同步该临时点赞记录 key，不分片的 key 归 0 号分片
+     *
+     * @param tempThumbKey
+     * @return
+     */
+    public boolean ownsKey(String tempThumbKey) {
+        return owns(RedisKeyUtil.parseTempThumbShard(tempThumbKey));
+    }
+
+    /**
+     * 下线时注销心跳并释放所有租约，其他节点下个心跳周期即可接手
+     */
+    @PreDestroy
+    public void stop() {
+        if (!thumbSyncProperties.getCoordinator().isEnabled()) {
+            return;
+        }
+        String nodeId = cacheProperties.getCluster().getNodeId();
+        try {
+            stringRedisTemplate.opsForZSet().remove(ThumbConstant.SYNC_NODES_KEY, nodeId);
+            Set<Integer> leasedShards = new HashSet<>(ownedShards);
+            leasedShards.addAll(releasingShards);
+            for (Integer shard : leasedShards) {
+                stringRedisTemplate.execute(RedisLuaScriptConstant.RELEASE_LOCK_SCRIPT, List.of(RedisKeyUtil.getSyncLeaseKey(shard)), nodeId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("点赞同步：注销节点 {} 失败，等待租约过期", nodeId, e);
+        }
+        ownedShards.clear();
+        releasingShards.clear();
+    }
+
+    /**
+     * rendezvous 哈希：分片归权重最大的节点，节点增减时只有归属于该节点的分片需要移动
+     *
+     * @param nodeIds
+     * @param shard
+     * @return
+     */
+    static String owner(Collection<String> nodeIds, int shard) {
+        String owner = null;
+        long maxWeight = Long.MIN_VALUE;
+        for (String nodeId : nodeIds) {
+            long weight = weight(nodeId, shard);
+            if (owner == null || weight > maxWeight || (weight == maxWeight && nodeId.compareTo(owner) < 0)) {
+                owner = nodeId;
+                maxWeight = weight;
+            }
+        }
+        return owner;
+    }
+
+    private static long weight(String nodeId, int shard) {
+        long h = nodeId.hashCode() * 0x9E3779B97F4A7C15L ^ (shard + 1) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
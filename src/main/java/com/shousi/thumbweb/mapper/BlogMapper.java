@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shousi.thumbweb.model.entity.Blog;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,6 +17,20 @@ import java.util.Map;
 public interface BlogMapper extends BaseMapper<Blog> {
 
     void batchUpdateThumbCount(@Param("countMap") Map<Long, Long> countMap);
+
+    /**
+     * 按（创建时间，id）倒序游标分页查询博客列表，不查询正文
+     * 依赖索引：alter table blog add index idx_createTime_id (createTime, id);
+     * 每页只扫描 limit 条索引记录，与表的大小无关
+     *
+     * @param cursorCreateTime 上一页最后一条的创建时间，首页传 null
+     * @param cursorId         上一页最后一条的 id，首页传 null
+     * @param limit            最多返回的条数
+     * @return
+     */
+    List<Blog> listByCursor(@Param("cursorCreateTime") Date cursorCreateTime,
+                            @Param("cursorId") Long cursorId,
+                            @Param("limit") int limit);
 }
 
 
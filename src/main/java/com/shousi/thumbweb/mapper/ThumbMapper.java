@@ -2,6 +2,9 @@ package com.shousi.thumbweb.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.shousi.thumbweb.model.entity.Thumb;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
 * @author 86172
@@ -11,6 +14,38 @@ import com.shousi.thumbweb.model.entity.Thumb;
 */
 public interface ThumbMapper extends BaseMapper<Thumb> {
 
+    /**
+     * 查询已存在的（用户，博客）点赞记录：WHERE (userId, blogId) IN ((?, ?), ...)
+     *
+     * @param thumbList 只需要 userId、blogId
+     * @return 已存在的记录，只包含 userId、blogId
+     */
+    List<Thumb> selectByUserIdAndBlogId(@Param("thumbList") List<Thumb> thumbList);
+
+    /**
+     * 多行 INSERT，调用方需预先设置 id，createTime 取数据库默认值
+     *
+     * @param thumbList
+     * @return 插入行数
+     */
+    int batchInsert(@Param("thumbList") List<Thumb> thumbList);
+
+    /**
+     * 多行 INSERT IGNORE，依赖唯一索引 uk_userId_blogId 跳过已存在的（用户，博客），重复写入幂等，
+     * 建表语句见 sql/create_table.sql
+     *
+     * @param thumbList
+     * @return 实际插入行数，不含被忽略的重复记录
+     */
+    int batchInsertIgnore(@Param("thumbList") List<Thumb> thumbList);
+
+    /**
+     * 按（用户，博客）批量删除：WHERE (userId, blogId) IN ((?, ?), ...)，可走 (userId, blogId) 索引的范围扫描
+     *
+     * @param thumbList 只需要 userId、blogId
+     * @return 删除行数
+     */
+    int batchDeleteByUserIdAndBlogId(@Param("thumbList") List<Thumb> thumbList);
 }
 
 
@@ -0,0 +1,25 @@
+package com.shousi.thumbweb.model.dto.blog;
+
+import lombok.Data;
+
+/**
+ * 博客列表游标分页请求，按创建时间、id 倒序，首页不传游标
+ */
+@Data
+public class BlogQueryRequest {
+
+    /**
+     * 上一页最后一条博客的创建时间（毫秒时间戳）
+     */
+    private Long cursorCreateTime;
+
+    /**
+     * 上一页最后一条博客的 id，与 cursorCreateTime 同时提供，查询第一页时都不传
+     */
+    private Long cursorId;
+
+    /**
+     * 每页条数
+     */
+    private Integer pageSize;
+}
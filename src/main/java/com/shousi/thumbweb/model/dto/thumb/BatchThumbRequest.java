@@ -0,0 +1,28 @@
+package com.shousi.thumbweb.model.dto.thumb;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchThumbRequest {
+
+    /**
+     * 按顺序执行的点赞 / 取消点赞操作
+     */
+    private List<ThumbItem> items;
+
+    @Data
+    public static class ThumbItem {
+
+        /**
+         * 博客id
+         */
+        private Long blogId;
+
+        /**
+         * 操作：1 点赞，-1 取消点赞
+         */
+        private Integer type;
+    }
+}
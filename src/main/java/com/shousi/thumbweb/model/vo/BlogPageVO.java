@@ -0,0 +1,29 @@
+package com.shousi.thumbweb.model.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BlogPageVO {
+
+    /**
+     * 本页博客，不含正文
+     */
+    private List<BlogVO> records;
+
+    /**
+     * 下一页游标：本页最后一条博客的创建时间（毫秒时间戳），没有下一页时为 null
+     */
+    private Long nextCursorCreateTime;
+
+    /**
+     * 下一页游标：本页最后一条博客的 id，没有下一页时为 null
+     */
+    private Long nextCursorId;
+
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+}
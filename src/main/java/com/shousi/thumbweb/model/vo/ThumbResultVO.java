@@ -0,0 +1,26 @@
+package com.shousi.thumbweb.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ThumbResultVO {
+
+    /**
+     * 博客id
+     */
+    private Long blogId;
+
+    /**
+     * 操作：1 点赞，-1 取消点赞
+     */
+    private Integer type;
+
+    /**
+     * 是否成功，重复点赞、未点赞时取消、博客不存在均为失败
+     */
+    private Boolean success;
+}
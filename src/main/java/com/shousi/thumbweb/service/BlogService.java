@@ -1,11 +1,15 @@
 package com.shousi.thumbweb.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.shousi.thumbweb.model.dto.blog.BlogQueryRequest;
 import com.shousi.thumbweb.model.entity.Blog;
+import com.shousi.thumbweb.model.vo.BlogPageVO;
 import com.shousi.thumbweb.model.vo.BlogVO;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 /**
 * @author 86172
@@ -29,4 +33,19 @@ public interface BlogService extends IService<Blog> {
      * @return
      */
     List<BlogVO> getBlogVOList(List<Blog> blogList, HttpServletRequest request);
+
+    /**
+     * 游标分页获取博客列表，每页的查询和点赞状态查询都只与页大小有关
+     * @param blogQueryRequest
+     * @param request
+     * @return
+     */
+    BlogPageVO listBlogVOByCursor(BlogQueryRequest blogQueryRequest, HttpServletRequest request);
+
+    /**
+     * 一次查询筛选出存在的博客 id，只查询 id 列
+     * @param blogIds
+     * @return
+     */
+    Set<Long> listExistingIds(Collection<Long> blogIds);
 }
@@ -1,10 +1,14 @@
 package com.shousi.thumbweb.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
 import com.shousi.thumbweb.model.dto.thumb.DoThumbRequest;
 import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.List;
+
 /**
 * @author 86172
 * @description 针对表【thumb】的数据库操作Service
@@ -28,6 +32,14 @@ public interface ThumbService extends IService<Thumb> {
      */
     Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request);
 
+    /**
+     * 批量点赞 / 取消点赞，按顺序执行，单项失败不影响其他项
+     * @param batchThumbRequest
+     * @param request
+     * @return 与请求各项一一对应的结果
+     */
+    List<ThumbResultVO> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request);
+
     /**
      * 是否已点赞
      * @param blogId
@@ -3,23 +3,32 @@ package com.shousi.thumbweb.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shousi.thumbweb.common.ErrorCode;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.BlogConstant;
 import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.exception.BusinessException;
+import com.shousi.thumbweb.manager.cache.CacheManager;
 import com.shousi.thumbweb.mapper.BlogMapper;
+import com.shousi.thumbweb.model.dto.blog.BlogQueryRequest;
 import com.shousi.thumbweb.model.entity.Blog;
 import com.shousi.thumbweb.model.entity.User;
+import com.shousi.thumbweb.model.vo.BlogPageVO;
 import com.shousi.thumbweb.model.vo.BlogVO;
 import com.shousi.thumbweb.service.BlogService;
 import com.shousi.thumbweb.service.ThumbService;
 import com.shousi.thumbweb.service.UserService;
+import com.shousi.thumbweb.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +37,7 @@ import java.util.stream.Collectors;
  * @createDate 2025-04-20 21:08:45
  */
 @Service
+@Slf4j
 public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         implements BlogService {
 
@@ -39,7 +49,13 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
     private ThumbService thumbService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheManager cacheManager;
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
 
     @Override
     public BlogVO getBlogVOById(long blogId, HttpServletRequest request) {
@@ -48,36 +64,93 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         return this.getBlogVO(blog, loginUser);
     }
 
+    @Override
+    public BlogPageVO listBlogVOByCursor(BlogQueryRequest blogQueryRequest, HttpServletRequest request) {
+        if (blogQueryRequest == null) {
+            throw new RuntimeException("参数错误");
+        }
+        Integer pageSize = blogQueryRequest.getPageSize();
+        if (pageSize == null || pageSize <= 0) {
+            pageSize = BlogConstant.DEFAULT_PAGE_SIZE;
+        }
+        pageSize = Math.min(pageSize, BlogConstant.MAX_PAGE_SIZE);
+        Long cursorCreateTime = blogQueryRequest.getCursorCreateTime();
+        // 游标的两个字段必须同时提供或同时省略，只给一个会按不完整的条件翻页
+        if ((cursorCreateTime == null) != (blogQueryRequest.getCursorId() == null)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "cursorCreateTime 与 cursorId 必须同时提供");
+        }
+        // 多查一条判断是否还有下一页
+        List<Blog> blogList = this.baseMapper.listByCursor(
+                cursorCreateTime == null ? null : new Date(cursorCreateTime),
+                blogQueryRequest.getCursorId(),
+                pageSize + 1);
+        boolean hasMore = blogList.size() > pageSize;
+        if (hasMore) {
+            blogList = blogList.subList(0, pageSize);
+        }
+
+        BlogPageVO blogPageVO = new BlogPageVO();
+        blogPageVO.setRecords(this.getBlogVOList(blogList, request));
+        blogPageVO.setHasMore(hasMore);
+        if (hasMore) {
+            Blog last = blogList.get(blogList.size() - 1);
+            blogPageVO.setNextCursorCreateTime(last.getCreateTime().getTime());
+            blogPageVO.setNextCursorId(last.getId());
+        }
+        return blogPageVO;
+    }
+
+    @Override
+    public Set<Long> listExistingIds(Collection<Long> blogIds) {
+        if (blogIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return this.lambdaQuery()
+                .select(Blog::getId)
+                .in(Blog::getId, blogIds)
+                .list()
+                .stream()
+                .map(Blog::getId)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public List<BlogVO> getBlogVOList(List<Blog> blogList, HttpServletRequest request) {
         User loginUser = userService.getLoginUser(request);
         Map<Long, Boolean> blogIdHasThumbMap = new HashMap<>();
-        if (ObjUtil.isNotEmpty(loginUser)) {
-            List<Object> blogIdList = blogList.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
-            // 获取该用户点赞的博客
-            // hmget 有值返回值 没有值返回null
-            List<Object> thumbList = redisTemplate.opsForHash().multiGet(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogIdList);
+        if (ObjUtil.isNotEmpty(loginUser) && !blogList.isEmpty()) {
+            List<String> blogIdList = blogList.stream().map(blog -> blog.getId().toString()).collect(Collectors.toList());
+            // 获取该用户点赞的博客，热点数据走本地缓存，其余一次 hmget
+            // 有值返回值 没有值返回null
+            List<Object> thumbList = cacheManager.getAll(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogIdList);
             for (int i = 0; i < thumbList.size(); i++) {
-                if (thumbList.get(i) == null) {
+                Object thumbIdObj = thumbList.get(i);
+                // 本地缓存中取消点赞记为 UN_THUMB_CONSTANT
+                if (thumbIdObj == null || ThumbConstant.UN_THUMB_CONSTANT.equals(thumbIdObj)) {
                     continue;
                 }
-                blogIdHasThumbMap.put(Long.valueOf(blogIdList.get(i).toString()), true);
+                blogIdHasThumbMap.put(Long.valueOf(blogIdList.get(i)), true);
             }
         }
 
-        return blogList.stream()
+        List<BlogVO> blogVOList = blogList.stream()
                 .map(blog -> {
                     BlogVO blogVO = BeanUtil.copyProperties(blog, BlogVO.class);
                     blogVO.setHasThumb(blogIdHasThumbMap.get(blog.getId()));
                     return blogVO;
                 })
                 .toList();
+        overlayThumbCountDelta(blogVOList);
+        return blogVOList;
     }
 
 
     private BlogVO getBlogVO(Blog blog, User loginUser) {
         BlogVO blogVO = new BlogVO();
         BeanUtil.copyProperties(blog, blogVO);
+        if (blogVO.getId() != null) {
+            overlayThumbCountDelta(List.of(blogVO));
+        }
 
         if (loginUser == null) {
             return blogVO;
@@ -88,8 +161,50 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog>
         blogVO.setHasThumb(exist);
         return blogVO;
     }
-}
-
-
-
 
+    /**
+     * 在数据库点赞数上叠加 Redis 中尚未同步的变化量，变化量按博客 ID 分片，
+     * 每个分片一次 hmget，整页在一次管道往返中取回
+     * Redis 不可用时保留数据库中的点赞数
+     */
+    private void overlayThumbCountDelta(List<BlogVO> blogVOList) {
+        if (blogVOList.isEmpty()) {
+            return;
+        }
+        int countDeltaShards = thumbSyncProperties.getCountDeltaShards();
+        Map<String, List<BlogVO>> shardBlogVOMap = new LinkedHashMap<>();
+        for (BlogVO blogVO : blogVOList) {
+            shardBlogVOMap.computeIfAbsent(RedisKeyUtil.getBlogThumbCountDeltaKey(blogVO.getId(), countDeltaShards),
+                    key -> new ArrayList<>()).add(blogVO);
+        }
+        List<Object> deltaLists;
+        try {
+            deltaLists = thumbRedisTemplate.executePipelined(new SessionCallback<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Long> thumbOperations = (RedisOperations<String, Long>) operations;
+                    shardBlogVOMap.forEach((key, shardBlogVOList) -> thumbOperations.<Object, Long>opsForHash().multiGet(key,
+                            shardBlogVOList.stream().map(blogVO -> (Object) blogVO.getId().toString()).toList()));
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("读取博客点赞数变化量失败，返回数据库中的点赞数", e);
+            return;
+        }
+        int shard = 0;
+        for (List<BlogVO> shardBlogVOList : shardBlogVOMap.values()) {
+            List<?> deltaList = (List<?>) deltaLists.get(shard++);
+            for (int i = 0; i < shardBlogVOList.size(); i++) {
+                Long delta = (Long) deltaList.get(i);
+                if (delta == null || delta == 0) {
+                    continue;
+                }
+                BlogVO blogVO = shardBlogVOList.get(i);
+                int thumbCount = blogVO.getThumbCount() == null ? 0 : blogVO.getThumbCount();
+                blogVO.setThumbCount((int) Math.max(0, thumbCount + delta));
+            }
+        }
+    }
+}
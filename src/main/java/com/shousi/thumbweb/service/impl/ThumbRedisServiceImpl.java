@@ -1,25 +1,32 @@
 package com.shousi.thumbweb.service.impl;
 
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
-import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.manager.batch.ThumbOperation;
+import com.shousi.thumbweb.manager.batch.ThumbRedisBatcher;
+import com.shousi.thumbweb.manager.cache.CacheInvalidationManager;
+import com.shousi.thumbweb.manager.cache.CacheManager;
 import com.shousi.thumbweb.mapper.ThumbMapper;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
 import com.shousi.thumbweb.model.dto.thumb.DoThumbRequest;
 import com.shousi.thumbweb.model.entity.Thumb;
 import com.shousi.thumbweb.model.entity.User;
 import com.shousi.thumbweb.model.enums.LuaStatusEnum;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
+import com.shousi.thumbweb.service.BlogService;
 import com.shousi.thumbweb.service.ThumbService;
 import com.shousi.thumbweb.service.UserService;
 import com.shousi.thumbweb.util.RedisKeyUtil;
+import com.shousi.thumbweb.util.ThumbRequestUtil;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author 86172
@@ -35,7 +42,16 @@ public class ThumbRedisServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
     private UserService userService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheManager cacheManager;
+
+    @Resource
+    private CacheInvalidationManager cacheInvalidationManager;
+
+    @Resource
+    private ThumbRedisBatcher thumbRedisBatcher;
+
+    @Resource
+    private BlogService blogService;
 
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
@@ -45,21 +61,17 @@ public class ThumbRedisServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long blogId = doThumbRequest.getBlogId();
 
-        String timeSlice = getTimeSlice();
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
 
-        // 执行lua脚本
-        long result = redisTemplate.execute(
-                RedisLuaScriptConstant.THUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
-                loginUser.getId(),
-                blogId
-        );
+        // 与并发的点赞请求合并为一次 Lua 脚本执行
+        long result = thumbRedisBatcher.execute(ThumbTypeEnum.INCR.getValue(), loginUser.getId(), blogId);
 
         if (LuaStatusEnum.FAIL.getValue() == result) {
             throw new RuntimeException("用户已点赞");
         }
+        if (LuaStatusEnum.SUCCESS.getValue() == result) {
+            evictThumbCache(userThumbKey, blogId);
+        }
 
         // 更新成功才执行
         return LuaStatusEnum.SUCCESS.getValue() == result;
@@ -73,34 +85,67 @@ public class ThumbRedisServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
         User loginUser = userService.getLoginUser(request);
         Long blogId = doThumbRequest.getBlogId();
 
-        String timeSlice = getTimeSlice();
-        String tempThumbKey = RedisKeyUtil.getTempThumbKey(timeSlice);
         String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
 
-        // 执行lua脚本
-        long result = redisTemplate.execute(
-                RedisLuaScriptConstant.UNTHUMB_SCRIPT,
-                Arrays.asList(tempThumbKey, userThumbKey),
-                loginUser.getId(),
-                blogId
-        );
+        // 与并发的点赞请求合并为一次 Lua 脚本执行
+        long result = thumbRedisBatcher.execute(ThumbTypeEnum.DECR.getValue(), loginUser.getId(), blogId);
 
         if (LuaStatusEnum.FAIL.getValue() == result) {
             throw new RuntimeException("用户未点赞");
         }
+        if (LuaStatusEnum.SUCCESS.getValue() == result) {
+            // 本节点记为未点赞，其他节点失效
+            cacheManager.putTombstone(userThumbKey, blogId.toString());
+            cacheInvalidationManager.publish(userThumbKey, blogId.toString());
+        }
 
         return LuaStatusEnum.SUCCESS.getValue() == result;
     }
 
-    private String getTimeSlice() {
-        DateTime nowDate = DateUtil.date();
-        // 获取到到当前时间前最近的整数秒，比如当前时间为 11:20:33 ，则返回 11:20:30
-        return DateUtil.format(nowDate, "HH:mm:") + (DateUtil.second(nowDate) / 10) * 10;
+    @Override
+    public List<ThumbResultVO> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<BatchThumbRequest.ThumbItem> items = ThumbRequestUtil.checkBatchThumbRequest(batchThumbRequest);
+        User loginUser = userService.getLoginUser(request);
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        // 一次查询过滤不存在的博客，不存在的直接失败，不写入 Redis
+        Set<Long> existBlogIdSet = blogService.listExistingIds(items.stream()
+                .map(BatchThumbRequest.ThumbItem::getBlogId)
+                .collect(Collectors.toSet()));
+
+        // 整个请求本身就是一批，直接一次 Lua 脚本执行，无需排队
+        List<ThumbOperation> operations = items.stream()
+                .filter(item -> existBlogIdSet.contains(item.getBlogId()))
+                .map(item -> new ThumbOperation(item.getType(), loginUser.getId(), item.getBlogId()))
+                .toList();
+        List<Long> results = operations.isEmpty() ? List.of() : thumbRedisBatcher.executeBatch(operations);
+
+        List<ThumbResultVO> thumbResultList = new ArrayList<>(items.size());
+        int next = 0;
+        for (BatchThumbRequest.ThumbItem item : items) {
+            boolean success = existBlogIdSet.contains(item.getBlogId())
+                    && LuaStatusEnum.SUCCESS.getValue() == results.get(next++);
+            if (success && item.getType() == ThumbTypeEnum.INCR.getValue()) {
+                evictThumbCache(userThumbKey, item.getBlogId());
+            } else if (success) {
+                cacheManager.putTombstone(userThumbKey, item.getBlogId().toString());
+                cacheInvalidationManager.publish(userThumbKey, item.getBlogId().toString());
+            }
+            thumbResultList.add(new ThumbResultVO(item.getBlogId(), item.getType(), success));
+        }
+        return thumbResultList;
+    }
+
+    /**
+     * Lua 脚本直接修改了 Redis，移除本节点的本地缓存并通知其他节点
+     */
+    private void evictThumbCache(String userThumbKey, Long blogId) {
+        cacheManager.invalidate(userThumbKey, blogId.toString());
+        cacheInvalidationManager.publish(userThumbKey, blogId.toString());
     }
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        return redisTemplate.opsForHash().hasKey(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId);
+        return cacheManager.get(userId, blogId) != null;
     }
 }
 
@@ -2,21 +2,30 @@ package com.shousi.thumbweb.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.manager.cache.CacheInvalidationManager;
 import com.shousi.thumbweb.manager.cache.CacheManager;
+import com.shousi.thumbweb.manager.lock.UserLockManager;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import com.shousi.thumbweb.mapper.BlogMapper;
 import com.shousi.thumbweb.mapper.ThumbMapper;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
 import com.shousi.thumbweb.model.dto.thumb.DoThumbRequest;
 import com.shousi.thumbweb.model.entity.Blog;
 import com.shousi.thumbweb.model.entity.Thumb;
 import com.shousi.thumbweb.model.entity.User;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
 import com.shousi.thumbweb.service.BlogService;
 import com.shousi.thumbweb.service.ThumbService;
 import com.shousi.thumbweb.service.UserService;
+import com.shousi.thumbweb.util.ThumbRequestUtil;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.*;
+
 /**
  * @author 86172
  * @description 针对表【thumb】的数据库操作Service实现
@@ -36,20 +45,30 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
     private BlogService blogService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private BlogMapper blogMapper;
+
+    @Resource
+    private ThumbStateStore thumbStateStore;
 
     @Resource
     private CacheManager cacheManager;
 
+    @Resource
+    private CacheInvalidationManager cacheInvalidationManager;
+
+    @Resource
+    private UserLockManager userLockManager;
+
     @Override
     public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
         if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
             throw new RuntimeException("参数错误");
         }
         User loginUser = userService.getLoginUser(request);
-        synchronized (loginUser.getId().toString().intern()) {
+        // 同一用户的点赞操作串行执行
+        return userLockManager.executeWithLock(loginUser.getId(), () ->
             // 编程式事务
-            return transactionTemplate.execute(status -> {
+            transactionTemplate.execute(status -> {
                 Long blogId = doThumbRequest.getBlogId();
                 // 判断是否点赞
                 boolean result = this.hasThumb(blogId, loginUser.getId());
@@ -71,14 +90,15 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                     String fieldKey = blogId.toString();
                     Long realThumbId = thumb.getId();
                     // 将点赞记录存入redis
-                    redisTemplate.opsForHash().put(hashKey, fieldKey, realThumbId);
+                    thumbStateStore.put(hashKey, fieldKey, realThumbId);
                     // 存入本地缓存
                     cacheManager.putIfPresent(hashKey, fieldKey, realThumbId);
+                    // 通知其他节点失效本地缓存
+                    cacheInvalidationManager.publish(hashKey, fieldKey);
                 }
                 // 更新成功才执行
                 return success;
-            });
-        }
+            }));
     }
 
     @Override
@@ -87,11 +107,12 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
             throw new RuntimeException("参数错误");
         }
         User loginUser = userService.getLoginUser(request);
-        synchronized (loginUser.getId().toString().intern()) {
+        // 同一用户的点赞操作串行执行
+        return userLockManager.executeWithLock(loginUser.getId(), () ->
             // 编程式事务
-            return transactionTemplate.execute(status -> {
+            transactionTemplate.execute(status -> {
                 Long blogId = doThumbRequest.getBlogId();
-                Object thumbIdObj = cacheManager.get(ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId(), blogId.toString());
+                Object thumbIdObj = cacheManager.get(loginUser.getId(), blogId);
                 if (thumbIdObj == null || thumbIdObj.equals(ThumbConstant.UN_THUMB_CONSTANT)) {
                     throw new RuntimeException("用户未点赞");
                 }
@@ -106,18 +127,108 @@ public class ThumbServiceImpl extends ServiceImpl<ThumbMapper, Thumb>
                 if (success) {
                     String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + loginUser.getId();
                     String fieldKey = blogId.toString();
-                    redisTemplate.opsForHash().delete(hashKey, fieldKey);
-                    cacheManager.putIfPresent(hashKey, fieldKey, ThumbConstant.UN_THUMB_CONSTANT);
+                    thumbStateStore.delete(hashKey, List.of(fieldKey));
+                    // 本地缓存记为未点赞
+                    cacheManager.putTombstone(hashKey, fieldKey);
+                    cacheInvalidationManager.publish(hashKey, fieldKey);
                 }
                 // 更新成功才执行
                 return success;
-            });
-        }
+            }));
+    }
+
+    @Override
+    public List<ThumbResultVO> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<BatchThumbRequest.ThumbItem> items = ThumbRequestUtil.checkBatchThumbRequest(batchThumbRequest);
+        User loginUser = userService.getLoginUser(request);
+        Long userId = loginUser.getId();
+        String hashKey = ThumbConstant.USER_THUMB_KEY_PREFIX + userId;
+        // 同一用户的点赞操作串行执行
+        return userLockManager.executeWithLock(userId, () ->
+            // 整批一个事务
+            transactionTemplate.execute(status -> {
+                List<Long> blogIdList = items.stream().map(BatchThumbRequest.ThumbItem::getBlogId).distinct().toList();
+                // 一次查询过滤不存在的博客
+                Set<Long> existBlogIdSet = blogService.listExistingIds(blogIdList);
+                // 一次批量读取点赞状态
+                List<Object> thumbIdList = cacheManager.getAll(hashKey, blogIdList.stream().map(String::valueOf).toList());
+                Map<Long, Long> originThumbIdMap = new HashMap<>();
+                for (int i = 0; i < blogIdList.size(); i++) {
+                    Object thumbIdObj = thumbIdList.get(i);
+                    if (thumbIdObj != null && !thumbIdObj.equals(ThumbConstant.UN_THUMB_CONSTANT)) {
+                        originThumbIdMap.put(blogIdList.get(i), (Long) thumbIdObj);
+                    }
+                }
+
+                // 按顺序在内存中执行各项，得到每项结果与每篇博客的最终点赞状态
+                Set<Long> thumbedBlogIdSet = new HashSet<>(originThumbIdMap.keySet());
+                List<ThumbResultVO> thumbResultList = new ArrayList<>(items.size());
+                for (BatchThumbRequest.ThumbItem item : items) {
+                    Long blogId = item.getBlogId();
+                    boolean success = existBlogIdSet.contains(blogId)
+                            && (item.getType() == ThumbTypeEnum.INCR.getValue()
+                            ? thumbedBlogIdSet.add(blogId)
+                            : thumbedBlogIdSet.remove(blogId));
+                    thumbResultList.add(new ThumbResultVO(blogId, item.getType(), success));
+                }
+
+                // 只有最终状态与初始状态不同的博客需要写库，先点赞再取消等相互抵消的操作不产生 SQL
+                List<Thumb> thumbList = new ArrayList<>();
+                List<Long> removeThumbIdList = new ArrayList<>();
+                List<String> removeFieldList = new ArrayList<>();
+                Map<Long, Long> blogThumbCountMap = new HashMap<>();
+                for (Long blogId : blogIdList) {
+                    boolean thumbed = thumbedBlogIdSet.contains(blogId);
+                    Long originThumbId = originThumbIdMap.get(blogId);
+                    if (thumbed && originThumbId == null) {
+                        Thumb thumb = new Thumb();
+                        thumb.setUserId(userId);
+                        thumb.setBlogId(blogId);
+                        thumbList.add(thumb);
+                        blogThumbCountMap.put(blogId, 1L);
+                    } else if (!thumbed && originThumbId != null) {
+                        removeThumbIdList.add(originThumbId);
+                        removeFieldList.add(blogId.toString());
+                        blogThumbCountMap.put(blogId, -1L);
+                    }
+                }
+                if (blogThumbCountMap.isEmpty()) {
+                    return thumbResultList;
+                }
+                if (!thumbList.isEmpty()) {
+                    this.saveBatch(thumbList);
+                }
+                if (!removeThumbIdList.isEmpty()) {
+                    this.removeByIds(removeThumbIdList);
+                }
+                blogMapper.batchUpdateThumbCount(blogThumbCountMap);
+
+                // 同步 Redis 与本地缓存，各一次批量命令
+                if (!thumbList.isEmpty()) {
+                    Map<String, Long> thumbIdMap = new HashMap<>();
+                    for (Thumb thumb : thumbList) {
+                        thumbIdMap.put(thumb.getBlogId().toString(), thumb.getId());
+                    }
+                    thumbStateStore.putAll(hashKey, thumbIdMap);
+                    thumbIdMap.forEach((fieldKey, thumbId) -> {
+                        cacheManager.putIfPresent(hashKey, fieldKey, thumbId);
+                        cacheInvalidationManager.publish(hashKey, fieldKey);
+                    });
+                }
+                if (!removeFieldList.isEmpty()) {
+                    thumbStateStore.delete(hashKey, removeFieldList);
+                    removeFieldList.forEach(fieldKey -> {
+                        cacheManager.putTombstone(hashKey, fieldKey);
+                        cacheInvalidationManager.publish(hashKey, fieldKey);
+                    });
+                }
+                return thumbResultList;
+            }));
     }
 
     @Override
     public Boolean hasThumb(Long blogId, Long userId) {
-        Object thumbIdObj = cacheManager.get(ThumbConstant.USER_THUMB_KEY_PREFIX + userId, blogId.toString());
+        Object thumbIdObj = cacheManager.get(userId, blogId);
         if (thumbIdObj == null) {
             return false;
         }
@@ -0,0 +1,204 @@
+package com.shousi.thumbweb.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.listener.thumb.msg.ThumbEvent;
+import com.shousi.thumbweb.manager.cache.CacheInvalidationManager;
+import com.shousi.thumbweb.manager.cache.CacheManager;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import com.shousi.thumbweb.mapper.ThumbMapper;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
+import com.shousi.thumbweb.model.dto.thumb.DoThumbRequest;
+import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.model.entity.User;
+import com.shousi.thumbweb.model.enums.LuaStatusEnum;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
+import com.shousi.thumbweb.service.BlogService;
+import com.shousi.thumbweb.service.ThumbService;
+import com.shousi.thumbweb.service.UserService;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import com.shousi.thumbweb.util.ThumbRequestUtil;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.pulsar.core.PulsarTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 基于消息队列的点赞：Redis 中原子更新点赞状态后发布点赞事件立即返回，由 ThumbConsumer 异步批量写库
+ */
+@Service("thumbServiceMQ")
+@Slf4j
+@ConditionalOnProperty(prefix = "thumb.mq", name = "enabled", havingValue = "true")
+public class ThumbServiceMQImpl extends ServiceImpl<ThumbMapper, Thumb>
+        implements ThumbService {
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    @Resource
+    private PulsarTemplate<ThumbEvent> pulsarTemplate;
+
+    @Resource
+    private CacheManager cacheManager;
+
+    @Resource
+    private ThumbStateStore thumbStateStore;
+
+    @Resource
+    private CacheInvalidationManager cacheInvalidationManager;
+
+    @Resource
+    private ThumbSyncProperties thumbSyncProperties;
+
+    @Resource
+    private BlogService blogService;
+
+    @Override
+    public Boolean doThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
+            throw new RuntimeException("参数错误");
+        }
+        User loginUser = userService.getLoginUser(request);
+        Long blogId = doThumbRequest.getBlogId();
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+
+        long result = thumbRedisTemplate.execute(
+                RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
+                getScriptKeys(userThumbKey, blogId),
+                blogId
+        );
+        if (LuaStatusEnum.FAIL.getValue() == result) {
+            throw new RuntimeException("用户已点赞");
+        }
+        evictThumbCache(userThumbKey, blogId);
+        publish(loginUser.getId(), blogId, ThumbTypeEnum.INCR);
+        return true;
+    }
+
+    @Override
+    public Boolean undoThumb(DoThumbRequest doThumbRequest, HttpServletRequest request) {
+        if (doThumbRequest == null || doThumbRequest.getBlogId() == null) {
+            throw new RuntimeException("参数错误");
+        }
+        User loginUser = userService.getLoginUser(request);
+        Long blogId = doThumbRequest.getBlogId();
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+
+        long result = thumbRedisTemplate.execute(
+                RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ,
+                getScriptKeys(userThumbKey, blogId),
+                blogId
+        );
+        if (LuaStatusEnum.FAIL.getValue() == result) {
+            throw new RuntimeException("用户未点赞");
+        }
+        cacheManager.putTombstone(userThumbKey, blogId.toString());
+        cacheInvalidationManager.publish(userThumbKey, blogId.toString());
+        publish(loginUser.getId(), blogId, ThumbTypeEnum.DECR);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ThumbResultVO> batchThumb(BatchThumbRequest batchThumbRequest, HttpServletRequest request) {
+        List<BatchThumbRequest.ThumbItem> items = ThumbRequestUtil.checkBatchThumbRequest(batchThumbRequest);
+        User loginUser = userService.getLoginUser(request);
+        String userThumbKey = RedisKeyUtil.getUserThumbKey(loginUser.getId());
+        // 一次查询过滤不存在的博客，不存在的直接失败，不写入 Redis 也不发送事件
+        Set<Long> existBlogIdSet = blogService.listExistingIds(items.stream()
+                .map(BatchThumbRequest.ThumbItem::getBlogId)
+                .collect(Collectors.toSet()));
+        List<BatchThumbRequest.ThumbItem> existItems = items.stream()
+                .filter(item -> existBlogIdSet.contains(item.getBlogId()))
+                .toList();
+
+        List<String> keys = new ArrayList<>(existItems.size() * 2);
+        Object[] args = new Object[existItems.size() * 2];
+        for (int i = 0; i < existItems.size(); i++) {
+            keys.addAll(getScriptKeys(userThumbKey, existItems.get(i).getBlogId()));
+            args[i * 2] = existItems.get(i).getType().longValue();
+            args[i * 2 + 1] = existItems.get(i).getBlogId();
+        }
+        List<Long> results = existItems.isEmpty() ? List.of() : (List<Long>) thumbRedisTemplate.execute(
+                RedisLuaScriptConstant.THUMB_BATCH_SCRIPT_MQ,
+                keys,
+                args
+        );
+
+        List<ThumbResultVO> thumbResultList = new ArrayList<>(items.size());
+        int next = 0;
+        for (BatchThumbRequest.ThumbItem item : items) {
+            boolean success = existBlogIdSet.contains(item.getBlogId())
+                    && LuaStatusEnum.SUCCESS.getValue() == results.get(next++);
+            if (success && item.getType() == ThumbTypeEnum.INCR.getValue()) {
+                evictThumbCache(userThumbKey, item.getBlogId());
+                publish(loginUser.getId(), item.getBlogId(), ThumbTypeEnum.INCR);
+            } else if (success) {
+                cacheManager.putTombstone(userThumbKey, item.getBlogId().toString());
+                cacheInvalidationManager.publish(userThumbKey, item.getBlogId().toString());
+                publish(loginUser.getId(), item.getBlogId(), ThumbTypeEnum.DECR);
+            }
+            thumbResultList.add(new ThumbResultVO(item.getBlogId(), item.getType(), success));
+        }
+        return thumbResultList;
+    }
+
+    @Override
+    public Boolean hasThumb(Long blogId, Long userId) {
+        return cacheManager.get(userId, blogId) != null;
+    }
+
+    /**
+     * 异步发送点赞事件，发送失败时执行相反的 Lua 脚本回滚 Redis 中的点赞状态
+     */
+    private void publish(Long userId, Long blogId, ThumbTypeEnum type) {
+        ThumbEvent thumbEvent = ThumbEvent.builder()
+                .userId(userId)
+                .blogId(blogId)
+                .type(type)
+                .eventTime(LocalDateTime.now())
+                .build();
+        pulsarTemplate.sendAsync(ThumbConstant.THUMB_TOPIC, thumbEvent).exceptionally(ex -> {
+            log.error("点赞事件发送失败，回滚 Redis 点赞状态：{}", thumbEvent, ex);
+            String userThumbKey = RedisKeyUtil.getUserThumbKey(userId);
+            thumbRedisTemplate.execute(
+                    type == ThumbTypeEnum.INCR ? RedisLuaScriptConstant.UNTHUMB_SCRIPT_MQ : RedisLuaScriptConstant.THUMB_SCRIPT_MQ,
+                    getScriptKeys(userThumbKey, blogId),
+                    blogId
+            );
+            evictThumbCache(userThumbKey, blogId);
+            return null;
+        });
+    }
+
+    /**
+     * 点赞脚本的 key：用户点赞状态键、博客点赞数变化量键
+     */
+    private List<String> getScriptKeys(String userThumbKey, Long blogId) {
+        return List.of(thumbStateStore.getKey(userThumbKey, blogId.toString()),
+                RedisKeyUtil.getBlogThumbCountDeltaKey(blogId, thumbSyncProperties.getCountDeltaShards()));
+    }
+
+    /**
+     * Lua 脚本直接修改了 Redis，移除本节点的本地缓存并通知其他节点
+     */
+    private void evictThumbCache(String userThumbKey, Long blogId) {
+        cacheManager.invalidate(userThumbKey, blogId.toString());
+        cacheInvalidationManager.publish(userThumbKey, blogId.toString());
+    }
+}
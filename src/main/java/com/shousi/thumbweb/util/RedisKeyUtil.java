@@ -1,7 +1,11 @@
 package com.shousi.thumbweb.util;
 
+import cn.hutool.core.date.DateUtil;
+import com.shousi.thumbweb.constant.HotKeyConstant;
 import com.shousi.thumbweb.constant.ThumbConstant;
 
+import java.util.Date;
+
 public class RedisKeyUtil {
 
     public static String getUserThumbKey(Long userId) {
@@ -15,5 +19,131 @@ public class RedisKeyUtil {
         return ThumbConstant.TEMP_THUMB_KEY_PREFIX.formatted(time);
     }
 
-}
+    /**
+     * 获取 临时点赞记录分片 key，分片数为 1 时与不分片的 key 相同
+     */
+    public static String getTempThumbKey(String time, int shard, int shards) {
+        if (shards <= 1) {
+            return getTempThumbKey(time);
+        }
+        return getTempThumbKey(time) + ":" + shard;
+    }
+
+    /**
+     * 用户的临时点赞记录所在分片
+     */
+    public static int getTempThumbShard(Long userId, int shards) {
+        return shard(userId, shards);
+    }
+
+    /**
+     * 获取 博客点赞数变化量分片 key，分片数为 1 时不分片
+     */
+    public static String getBlogThumbCountDeltaKey(Long blogId, int shards) {
+        if (shards <= 1) {
+            return ThumbConstant.BLOG_THUMB_COUNT_DELTA_KEY;
+        }
+        return ThumbConstant.BLOG_THUMB_COUNT_DELTA_KEY + ":" + shard(blogId, shards);
+    }
+
+    private static int shard(long id, int shards) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(h ^ (h >>> 32), (long) shards);
+    }
+
+    /**
+     * 获取 临时点赞记录同步中 key
+     */
+    public static String getProcessingTempThumbKey(String tempThumbKey) {
+        return tempThumbKey + ThumbConstant.PROCESSING_KEY_SUFFIX;
+    }
+
+    /**
+     * 同步中 key 对应的临时点赞记录 key，其他 key 原样返回
+     */
+    public static String stripProcessingSuffix(String tempThumbKey) {
+        return tempThumbKey.endsWith(ThumbConstant.PROCESSING_KEY_SUFFIX)
+                ? tempThumbKey.substring(0, tempThumbKey.length() - ThumbConstant.PROCESSING_KEY_SUFFIX.length())
+                : tempThumbKey;
+    }
+
+    /**
+     * 临时点赞记录 key 所在分片，不分片的 key 视为 0 号分片
+     */
+    public static int parseTempThumbShard(String tempThumbKey) {
+        String[] split = stripProcessingSuffix(tempThumbKey).substring(getTempThumbKey("").length()).split(":");
+        return split.length > 3 ? Integer.parseInt(split[3]) : 0;
+    }
+
+    /**
+     * 临时点赞记录 key 所在时间片距 0 点的秒数
+     */
+    public static int parseTempThumbSecondOfDay(String tempThumbKey) {
+        String[] split = stripProcessingSuffix(tempThumbKey).substring(getTempThumbKey("").length()).split(":");
+        return Integer.parseInt(split[0]) * 3600 + Integer.parseInt(split[1]) * 60 + Integer.parseInt(split[2]);
+    }
+
+    /**
+     * 获取当前时间片：当前时间前最近的整 10 秒，比如当前时间为 11:20:33 ，则返回 11:20:30
+     */
+    public static String getTimeSlice() {
+        return getTimeSlice(DateUtil.date());
+    }
+
+    /**
+     * 获取指定时间所在的时间片
+     */
+    public static String getTimeSlice(Date date) {
+        return DateUtil.format(date, "HH:mm:") + (DateUtil.second(date) / 10) * 10;
+    }
+
+    /**
+     * 获取指定时间所在时间片开始的时间戳（秒），用于按先后排序待同步的时间片
+     */
+    public static long getTimeSliceEpochSecond(Date date) {
+        return date.getTime() / 1000 / 10 * 10;
+    }
+
+    /**
+     * 获取 分片待同步时间片索引 key
+     */
+    public static String getSyncPendingKey(int shard) {
+        return ThumbConstant.SYNC_PENDING_KEY_PREFIX + shard;
+    }
+
+    /**
+     * 获取 点赞同步分片租约 key
+     */
+    public static String getSyncLeaseKey(int shard) {
+        return ThumbConstant.SYNC_LEASE_KEY_PREFIX + shard;
+    }
 
+    /**
+     * 获取 补偿任务游标检查点 key
+     */
+    public static String getSyncCursorKey(int shard) {
+        return ThumbConstant.SYNC_CURSOR_KEY_PREFIX + shard;
+    }
+
+    /**
+     * 获取 点赞事件已扣除变化量标记 key
+     */
+    public static String getThumbEventAppliedKey(String messageId) {
+        return ThumbConstant.THUMB_EVENT_APPLIED_KEY_PREFIX + messageId;
+    }
+
+    /**
+     * 获取 用户锁租约 key
+     */
+    public static String getUserLockKey(Long userId) {
+        return ThumbConstant.USER_LOCK_KEY_PREFIX + userId;
+    }
+
+    /**
+     * 获取 节点热点快照 key
+     */
+    public static String getHotKeyNodeKey(String nodeId) {
+        return HotKeyConstant.NODE_SNAPSHOT_KEY_PREFIX + nodeId;
+    }
+
+}
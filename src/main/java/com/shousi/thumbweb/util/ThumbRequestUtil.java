@@ -0,0 +1,32 @@
+package com.shousi.thumbweb.util;
+
+import com.shousi.thumbweb.constant.ThumbConstant;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+
+import java.util.List;
+
+public class ThumbRequestUtil {
+
+    /**
+     * 校验批量点赞请求
+     *
+     * @return 请求中的操作列表
+     */
+    public static List<BatchThumbRequest.ThumbItem> checkBatchThumbRequest(BatchThumbRequest batchThumbRequest) {
+        if (batchThumbRequest == null || batchThumbRequest.getItems() == null || batchThumbRequest.getItems().isEmpty()) {
+            throw new RuntimeException("参数错误");
+        }
+        List<BatchThumbRequest.ThumbItem> items = batchThumbRequest.getItems();
+        if (items.size() > ThumbConstant.BATCH_THUMB_MAX_SIZE) {
+            throw new RuntimeException("单次最多操作 " + ThumbConstant.BATCH_THUMB_MAX_SIZE + " 篇博客");
+        }
+        for (BatchThumbRequest.ThumbItem item : items) {
+            if (item == null || item.getBlogId() == null || item.getType() == null
+                    || (item.getType() != ThumbTypeEnum.INCR.getValue() && item.getType() != ThumbTypeEnum.DECR.getValue())) {
+                throw new RuntimeException("参数错误");
+            }
+        }
+        return items;
+    }
+}
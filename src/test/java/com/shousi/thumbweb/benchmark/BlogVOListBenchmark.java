@@ -0,0 +1,137 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.model.entity.Blog;
+import com.shousi.thumbweb.model.entity.User;
+import com.shousi.thumbweb.model.vo.BlogVO;
+import com.shousi.thumbweb.service.UserService;
+import com.shousi.thumbweb.service.impl.BlogServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlogServiceImpl.getBlogVOList 组装一页 VO 的开销：点赞状态经 CacheManager 从内存 Redis 替身查询，
+ * 每页的博客按 Zipf 分布抽取，热门博客会反复出现
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="BlogVOListBenchmark" -Djmh.threads=8
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlogVOListBenchmark {
+
+    private static final int PAGE_COUNT = 1024;
+    private static final int BLOG_COUNT = 10000;
+    private static final long LOGIN_USER_ID = 1L;
+
+    @Param({"10", "50"})
+    public int pageSize;
+
+    private BlogServiceImpl blogService;
+    private List<List<Blog>> pages;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        Blog[] blogs = new Blog[BLOG_COUNT];
+        Map<String, Object> thumbs = new ConcurrentHashMap<>();
+        for (int i = 0; i < BLOG_COUNT; i++) {
+            Blog blog = new Blog();
+            blog.setId((long) i);
+            blog.setUserId((long) i % 100);
+            blog.setTitle("title " + i);
+            blog.setCoverImg("https://example.com/" + i + ".png");
+            blog.setContent("content " + i);
+            blog.setThumbCount(i % 1000);
+            blog.setCreateTime(new Date());
+            blogs[i] = blog;
+            if (i % 3 == 0) {
+                thumbs.put(String.valueOf(i), (long) i);
+            }
+        }
+        int[] ranks = ZipfKeys.ranks(PAGE_COUNT * pageSize, BLOG_COUNT, 1.1, 42);
+        pages = new ArrayList<>(PAGE_COUNT);
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            List<Blog> page = new ArrayList<>(pageSize);
+            for (int j = 0; j < pageSize; j++) {
+                page.add(blogs[ranks[p * pageSize + j]]);
+            }
+            pages.add(page);
+        }
+
+        User loginUser = new User();
+        loginUser.setId(LOGIN_USER_ID);
+        UserService userService = (UserService) Proxy.newProxyInstance(
+                UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class},
+                (proxy, method, args) -> {
+                    if ("getLoginUser".equals(method.getName())) {
+                        return loginUser;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        Map<String, Map<String, Object>> data = new ConcurrentHashMap<>();
+        data.put("thumb:" + LOGIN_USER_ID, thumbs);
+
+        blogService = new BlogServiceImpl();
+        ReflectionTestUtils.setField(blogService, "userService", userService);
+        ReflectionTestUtils.setField(blogService, "cacheManager", CacheManagerBenchmark.newCacheManager(data, 0));
+        ReflectionTestUtils.setField(blogService, "thumbRedisTemplate", newThumbRedisTemplate());
+        ReflectionTestUtils.setField(blogService, "thumbSyncProperties", new ThumbSyncProperties());
+        request = new MockHttpServletRequest();
+    }
+
+    /**
+     * 点赞数变化量替身：没有尚未同步的变化，管道中每个分片的 multiGet 返回与博客 id 等长的 null 列表
+     */
+    private static RedisTemplate<String, Long> newThumbRedisTemplate() {
+        ThreadLocal<List<Object>> pipelineResults = new ThreadLocal<>();
+        HashOperations<?, ?, ?> hashOperations = (HashOperations<?, ?, ?>) Proxy.newProxyInstance(
+                HashOperations.class.getClassLoader(),
+                new Class<?>[]{HashOperations.class},
+                (proxy, method, args) -> {
+                    if ("multiGet".equals(method.getName())) {
+                        pipelineResults.get().add(Arrays.asList(new Object[((Collection<?>) args[1]).size()]));
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new RedisTemplate<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+                return (HashOperations<String, HK, HV>) hashOperations;
+            }
+
+            @Override
+            public List<Object> executePipelined(SessionCallback<?> session) {
+                List<Object> results = new ArrayList<>();
+                pipelineResults.set(results);
+                session.execute(this);
+                return results;
+            }
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<BlogVO> getBlogVOList(Cursor cursor) {
+        return blogService.getBlogVOList(pages.get(cursor.next++ & (PAGE_COUNT - 1)), request);
+    }
+}
@@ -0,0 +1,95 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.manager.cache.CacheManager;
+import com.shousi.thumbweb.manager.state.HashThumbStateStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheManager 查询基准：Redis 为内存替身，可模拟往返延迟；访问按 Zipf 分布集中在少量用户和博客上，
+ * 大约一半的查询是未点赞（Redis 中不存在）
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="CacheManagerBenchmark" -Djmh.threads=8
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheManagerBenchmark {
+
+    private static final int SAMPLE_COUNT = 1 << 16;
+    private static final int USER_COUNT = 1000;
+    private static final int BLOG_COUNT = 10000;
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * 模拟的 Redis 往返延迟（微秒）
+     */
+    @Param({"0", "100"})
+    public long redisMicros;
+
+    private CacheManager cacheManager;
+    private String[] hashKeys;
+    private String[] fields;
+
+    @Setup
+    public void setup() {
+        int[] users = ZipfKeys.ranks(SAMPLE_COUNT, USER_COUNT, 1.1, 42);
+        int[] blogs = ZipfKeys.ranks(SAMPLE_COUNT, BLOG_COUNT, 1.1, 7);
+        Map<String, Map<String, Object>> data = new ConcurrentHashMap<>();
+        hashKeys = new String[SAMPLE_COUNT];
+        fields = new String[SAMPLE_COUNT];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            hashKeys[i] = "thumb:" + users[i];
+            fields[i] = String.valueOf(blogs[i]);
+            // 偶数博客视为已点赞
+            if ((blogs[i] & 1) == 0) {
+                data.computeIfAbsent(hashKeys[i], k -> new ConcurrentHashMap<>()).put(fields[i], (long) i);
+            }
+        }
+        cacheManager = newCacheManager(data, redisMicros);
+    }
+
+    static CacheManager newCacheManager(Map<String, Map<String, Object>> data, long redisMicros) {
+        CacheManager cacheManager = new CacheManager();
+        HashThumbStateStore thumbStateStore = new HashThumbStateStore();
+        ReflectionTestUtils.setField(thumbStateStore, "thumbRedisTemplate", StubRedis.template(data, redisMicros));
+        ReflectionTestUtils.setField(cacheManager, "thumbStateStore", thumbStateStore);
+        ReflectionTestUtils.setField(cacheManager, "cacheProperties", new CacheProperties());
+        cacheManager.getHotKeyDetector();
+        cacheManager.localCache();
+        cacheManager.negativeCache();
+        return cacheManager;
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        int i = cursor.next++ & (SAMPLE_COUNT - 1);
+        return cacheManager.get(hashKeys[i], fields[i]);
+    }
+
+    @Benchmark
+    public List<Object> getAll(Cursor cursor) {
+        // 按固定分页读取，与列表页翻页一致
+        int start = (cursor.next++ % (SAMPLE_COUNT / PAGE_SIZE)) * PAGE_SIZE;
+        List<String> page = new ArrayList<>(PAGE_SIZE);
+        for (int j = 0; j < PAGE_SIZE; j++) {
+            page.add(fields[start + j]);
+        }
+        return cacheManager.getAll(hashKeys[start], page);
+    }
+}
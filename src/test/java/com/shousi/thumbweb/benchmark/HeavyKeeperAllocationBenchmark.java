@@ -0,0 +1,83 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.manager.cache.HeavyKeeper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeavyKeeper.add 热路径的分配情况，配合 -prof gc 查看 gc.alloc.rate.norm（B/op）
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="HeavyKeeperAllocationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HeavyKeeperAllocationBenchmark {
+
+    private static final int KEY_COUNT = 1 << 16;
+
+    private HeavyKeeper heavyKeeper;
+    private LegacyHeavyKeeper legacyHeavyKeeper;
+    private String[] keys;
+    private String[] hashKeys;
+    private String[] fields;
+    private long[] userIds;
+    private long[] blogIds;
+    private int next;
+
+    @Setup
+    public void setup() {
+        heavyKeeper = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        legacyHeavyKeeper = new LegacyHeavyKeeper(100, 100000, 5, 0.92, 10);
+        int[] ranks = ZipfKeys.ranks(KEY_COUNT, 100000, 1.1, 42);
+        keys = new String[KEY_COUNT];
+        hashKeys = new String[KEY_COUNT];
+        fields = new String[KEY_COUNT];
+        userIds = new long[KEY_COUNT];
+        blogIds = new long[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            userIds[i] = ranks[i] % 1000;
+            blogIds[i] = ranks[i];
+            hashKeys[i] = "thumb:" + userIds[i];
+            fields[i] = String.valueOf(blogIds[i]);
+            keys[i] = hashKeys[i] + ":" + fields[i];
+        }
+    }
+
+    @Benchmark
+    public boolean legacyString() {
+        int i = next++ & (KEY_COUNT - 1);
+        return legacyHeavyKeeper.add(keys[i], 1);
+    }
+
+    /**
+     * 优化前 CacheManager 的用法：先拼接复合 Key 再调用 add
+     */
+    @Benchmark
+    public boolean legacyConcat() {
+        int i = next++ & (KEY_COUNT - 1);
+        return legacyHeavyKeeper.add(hashKeys[i] + ":" + fields[i], 1);
+    }
+
+    @Benchmark
+    public boolean string() {
+        int i = next++ & (KEY_COUNT - 1);
+        return heavyKeeper.add(keys[i], 1).isHotKey();
+    }
+
+    @Benchmark
+    public boolean composite() {
+        int i = next++ & (KEY_COUNT - 1);
+        return heavyKeeper.add(hashKeys[i], fields[i], 1).isHotKey();
+    }
+
+    @Benchmark
+    public boolean primitive() {
+        int i = next++ & (KEY_COUNT - 1);
+        return heavyKeeper.add(userIds[i], blogIds[i]).isHotKey();
+    }
+}
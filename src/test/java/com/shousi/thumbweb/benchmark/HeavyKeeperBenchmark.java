@@ -0,0 +1,68 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.manager.cache.HeavyKeeper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeavyKeeper 热点探测基准：对比优化前后实现在多线程下的 add / list 吞吐
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="HeavyKeeperBenchmark" -Djmh.threads=32
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeavyKeeperBenchmark {
+
+    private static final int KEY_COUNT = 1 << 16;
+
+    @Param({"current", "legacy"})
+    public String impl;
+
+    private HeavyKeeper heavyKeeper;
+    private LegacyHeavyKeeper legacyHeavyKeeper;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        // 与 CacheManager 中的参数一致
+        heavyKeeper = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        legacyHeavyKeeper = new LegacyHeavyKeeper(100, 100000, 5, 0.92, 10);
+        keys = ZipfKeys.compositeKeys(KEY_COUNT, 100000, 1.1, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public boolean add(Cursor cursor) {
+        String key = keys[cursor.next++ & (KEY_COUNT - 1)];
+        return "legacy".equals(impl) ? legacyHeavyKeeper.add(key, 1) : heavyKeeper.add(key, 1).isHotKey();
+    }
+
+    @Benchmark
+    public Object list() {
+        return "legacy".equals(impl) ? legacyHeavyKeeper.list() : heavyKeeper.list();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public boolean mixedAdd(Cursor cursor) {
+        return add(cursor);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedList(Blackhole blackhole) {
+        blackhole.consume("legacy".equals(impl) ? legacyHeavyKeeper.list() : heavyKeeper.list());
+    }
+}
@@ -0,0 +1,48 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.manager.cache.HeavyKeeper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeavyKeeper 衰减开销：对一个填满 Zipf 负载的 sketch 执行 fading（堆衰减 + 一段桶清扫）
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="HeavyKeeperFadingBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeavyKeeperFadingBenchmark {
+
+    private static final int KEY_COUNT = 1 << 18;
+
+    private HeavyKeeper heavyKeeper;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        heavyKeeper = new HeavyKeeper(100, 100000, 5, 0.92, 10);
+        keys = ZipfKeys.compositeKeys(KEY_COUNT, 100000, 1.1, 42);
+        refill();
+    }
+
+    /**
+     * 每轮重新写入，避免多次衰减后 sketch 变空
+     */
+    @Setup(Level.Iteration)
+    public void refill() {
+        for (String key : keys) {
+            heavyKeeper.add(key, 1);
+        }
+    }
+
+    @Benchmark
+    public long fading() {
+        heavyKeeper.fading();
+        return heavyKeeper.total();
+    }
+}
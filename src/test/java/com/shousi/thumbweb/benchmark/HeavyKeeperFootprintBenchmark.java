@@ -0,0 +1,28 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.manager.cache.HeavyKeeper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeavyKeeper 的堆占用：构造一个实例分配的字节数（-prof gc 的 gc.alloc.rate.norm）即为其 sketch 的大小
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="HeavyKeeperFootprintBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class HeavyKeeperFootprintBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int width;
+
+    @Benchmark
+    public HeavyKeeper construct() {
+        return new HeavyKeeper(100, width, 5, 0.92, 10);
+    }
+}
@@ -0,0 +1,121 @@
+package com.shousi.thumbweb.benchmark;
+
+import cn.hutool.core.util.HashUtil;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 优化前的 HeavyKeeper 实现（PriorityQueue + stream 扫描），仅作为基准测试的对照组
+ */
+class LegacyHeavyKeeper {
+    private static final int LOOKUP_TABLE_SIZE = 256;
+    private final int k;
+    private final int width;
+    private final int depth;
+    private final double[] lookupTable;
+    private final Bucket[][] buckets;
+    private final PriorityQueue<Node> minHeap;
+    private final BlockingQueue<String> expelledQueue;
+    private final Random random;
+    private long total;
+    private final int minCount;
+
+    LegacyHeavyKeeper(int k, int width, int depth, double decay, int minCount) {
+        this.k = k;
+        this.width = width;
+        this.depth = depth;
+        this.minCount = minCount;
+        this.lookupTable = new double[LOOKUP_TABLE_SIZE];
+        for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+            lookupTable[i] = Math.pow(decay, i);
+        }
+        this.buckets = new Bucket[depth][width];
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < width; j++) {
+                buckets[i][j] = new Bucket();
+            }
+        }
+        this.minHeap = new PriorityQueue<>(Comparator.comparingInt(n -> n.count));
+        this.expelledQueue = new LinkedBlockingQueue<>();
+        this.random = new Random();
+    }
+
+    boolean add(String key, int increment) {
+        byte[] keyBytes = key.getBytes();
+        long itemFingerprint = HashUtil.murmur32(keyBytes);
+        int maxCount = 0;
+        for (int i = 0; i < depth; i++) {
+            int bucketNumber = Math.abs(HashUtil.murmur32(keyBytes)) % width;
+            Bucket bucket = buckets[i][bucketNumber];
+            synchronized (bucket) {
+                if (bucket.count == 0) {
+                    bucket.fingerprint = itemFingerprint;
+                    bucket.count = increment;
+                    maxCount = Math.max(maxCount, increment);
+                } else if (bucket.fingerprint == itemFingerprint) {
+                    bucket.count += increment;
+                    maxCount = Math.max(maxCount, bucket.count);
+                } else {
+                    for (int j = 0; j < increment; j++) {
+                        double decay = bucket.count < LOOKUP_TABLE_SIZE ?
+                                lookupTable[bucket.count] :
+                                lookupTable[LOOKUP_TABLE_SIZE - 1];
+                        if (random.nextDouble() < decay) {
+                            bucket.count--;
+                            if (bucket.count == 0) {
+                                bucket.fingerprint = itemFingerprint;
+                                bucket.count = increment - j;
+                                maxCount = Math.max(maxCount, bucket.count);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        total += increment;
+        if (maxCount < minCount) {
+            return false;
+        }
+        synchronized (minHeap) {
+            Optional<Node> existing = minHeap.stream()
+                    .filter(n -> n.key.equals(key))
+                    .findFirst();
+            if (existing.isPresent()) {
+                minHeap.remove(existing.get());
+                minHeap.add(new Node(key, maxCount));
+                return true;
+            }
+            if (minHeap.size() < k || maxCount >= Objects.requireNonNull(minHeap.peek()).count) {
+                if (minHeap.size() >= k) {
+                    expelledQueue.offer(minHeap.poll().key);
+                }
+                minHeap.add(new Node(key, maxCount));
+                return true;
+            }
+            return false;
+        }
+    }
+
+    List<String> list() {
+        synchronized (minHeap) {
+            List<Node> nodes = new ArrayList<>(minHeap);
+            nodes.sort((a, b) -> Integer.compare(b.count, a.count));
+            List<String> result = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                result.add(node.key);
+            }
+            return result;
+        }
+    }
+
+    private static class Bucket {
+        long fingerprint;
+        int count;
+    }
+
+    private record Node(String key, int count) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.LockProperties;
+import com.shousi.thumbweb.manager.cache.CacheManager;
+import com.shousi.thumbweb.manager.lock.UserLockManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 并发请求容量：模拟一次点赞请求（用户锁内查询点赞状态 + 一次数据库往返），
+ * 对比 Tomcat 默认 200 个平台线程与每请求一个虚拟线程处理一波并发请求的耗时；
+ * intern 为原先的 synchronized (userId.intern())，锁内阻塞会钉住虚拟线程的载体线程
+ * <p>
+ * 每次操作完成 requests 个请求，请求数 / 耗时即为容量
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="RequestCapacityBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+@State(Scope.Benchmark)
+public class RequestCapacityBenchmark {
+
+    /**
+     * Tomcat 默认最大线程数
+     */
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String executor;
+
+    @Param({"intern", "striped"})
+    public String lock;
+
+    /**
+     * 每波并发请求数
+     */
+    @Param({"2000"})
+    public int requests;
+
+    /**
+     * 模拟的 Redis / MySQL 往返耗时（微秒）
+     */
+    @Param({"500"})
+    public long redisMicros;
+
+    @Param({"5", "20"})
+    public long mysqlMillis;
+
+    private ExecutorService executorService;
+    private UserLockManager userLockManager;
+    private CacheManager cacheManager;
+    private long nextUserId;
+
+    @Setup
+    public void setup() {
+        executorService = "virtual".equals(executor)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        userLockManager = new UserLockManager();
+        ReflectionTestUtils.setField(userLockManager, "lockProperties", new LockProperties());
+        userLockManager.init();
+        cacheManager = CacheManagerBenchmark.newCacheManager(new ConcurrentHashMap<>(Map.of()), redisMicros);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<Boolean>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            Long userId = nextUserId++;
+            futures.add(executorService.submit(() -> handle(userId)));
+        }
+        int done = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get()) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    private boolean handle(Long userId) {
+        if ("intern".equals(lock)) {
+            synchronized (userId.toString().intern()) {
+                return doThumb(userId);
+            }
+        }
+        return userLockManager.executeWithLock(userId, () -> doThumb(userId));
+    }
+
+    private boolean doThumb(Long userId) {
+        boolean thumbed = cacheManager.get("thumb:" + userId, "1") != null;
+        try {
+            Thread.sleep(mysqlMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thumbed;
+    }
+}
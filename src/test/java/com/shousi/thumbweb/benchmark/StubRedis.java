@@ -0,0 +1,72 @@
+package com.shousi.thumbweb.benchmark;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 内存中的 Redis hash 替身，只实现 HGET / HMGET / HSET，每次往返可模拟固定的网络延迟，
+ * 用于在没有 Redis 的环境下衡量缓存层自身的开销
+ */
+final class StubRedis {
+
+    private StubRedis() {
+    }
+
+    /**
+     * @param data             hashKey -> (field -> value)
+     * @param roundTripMicros 每次往返的模拟延迟（微秒），0 表示不模拟
+     */
+    @SuppressWarnings("unchecked")
+    static RedisTemplate<String, Object> template(Map<String, Map<String, Object>> data, long roundTripMicros) {
+        HashOperations<String, Object, Object> hashOperations = (HashOperations<String, Object, Object>) Proxy.newProxyInstance(
+                StubRedis.class.getClassLoader(),
+                new Class<?>[]{HashOperations.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "get" -> {
+                            roundTrip(roundTripMicros);
+                            Map<String, Object> hash = data.get((String) args[0]);
+                            return hash == null ? null : hash.get(args[1].toString());
+                        }
+                        case "multiGet" -> {
+                            roundTrip(roundTripMicros);
+                            Map<String, Object> hash = data.getOrDefault((String) args[0], Map.of());
+                            Collection<?> fields = (Collection<?>) args[1];
+                            List<Object> values = new ArrayList<>(fields.size());
+                            for (Object field : fields) {
+                                values.add(hash.get(field.toString()));
+                            }
+                            return values;
+                        }
+                        case "put" -> {
+                            roundTrip(roundTripMicros);
+                            data.computeIfAbsent((String) args[0], k -> new ConcurrentHashMap<>()).put(args[1].toString(), args[2]);
+                            return null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return new RedisTemplate<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+                return (HashOperations<String, HK, HV>) hashOperations;
+            }
+        };
+    }
+
+    private static void roundTrip(long micros) {
+        if (micros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+    }
+}
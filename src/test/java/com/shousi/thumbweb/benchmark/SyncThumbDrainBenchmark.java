@@ -0,0 +1,159 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.LongRedisSerializer;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.job.SyncThumb2DBJob;
+import com.shousi.thumbweb.job.ThumbSyncBatch;
+import com.shousi.thumbweb.manager.sync.ThumbSyncCoordinator;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 一个时间片临时点赞数据的同步耗时：不分片串行同步与按用户分片并行同步对比，
+ * 需要本机 6379 端口的 Redis（15 号库）；写库以固定往返 + 每行耗时模拟
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="SyncThumbDrainBenchmark"
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SyncThumbDrainBenchmark {
+
+    private static final String TIME_SLICE = "00:00:00";
+
+    @Param({"1", "8"})
+    public int shards;
+
+    @Param({"10000", "100000"})
+    public int entries;
+
+    @Param({"4"})
+    public int drainThreads;
+
+    @Param({"1000"})
+    public int chunkSize;
+
+    /**
+     * 模拟一次批量写库的固定往返（微秒）与每行耗时（微秒）
+     */
+    @Param({"2000"})
+    public long dbRoundTripMicros;
+
+    @Param({"10"})
+    public long dbRowMicros;
+
+    private JedisConnectionFactory connectionFactory;
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+    private SyncThumb2DBJob syncThumb2DBJob;
+
+    @Setup
+    public void setup() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        thumbRedisTemplate = new RedisTemplate<>();
+        thumbRedisTemplate.setConnectionFactory(connectionFactory);
+        thumbRedisTemplate.setKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setHashValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.afterPropertiesSet();
+
+        ThumbSyncProperties thumbSyncProperties = new ThumbSyncProperties();
+        thumbSyncProperties.setShards(shards);
+        thumbSyncProperties.setDrainThreads(drainThreads);
+        thumbSyncProperties.setChunkSize(chunkSize);
+        // 单节点，同步所有分片
+        thumbSyncProperties.getCoordinator().setEnabled(false);
+        ThumbSyncCoordinator thumbSyncCoordinator = new ThumbSyncCoordinator();
+        ReflectionTestUtils.setField(thumbSyncCoordinator, "thumbSyncProperties", thumbSyncProperties);
+        syncThumb2DBJob = new SyncThumb2DBJob() {
+            @Override
+            protected void persist(ThumbSyncBatch batch) {
+                int rows = batch.getThumbList().size() + batch.getRemoveList().size();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbRoundTripMicros + rows * dbRowMicros));
+            }
+        };
+        ReflectionTestUtils.setField(syncThumb2DBJob, "thumbRedisTemplate", thumbRedisTemplate);
+        ReflectionTestUtils.setField(syncThumb2DBJob, "stringRedisTemplate", new StringRedisTemplate(connectionFactory));
+        ReflectionTestUtils.setField(syncThumb2DBJob, "thumbSyncProperties", thumbSyncProperties);
+        ReflectionTestUtils.setField(syncThumb2DBJob, "thumbSyncCoordinator", thumbSyncCoordinator);
+        ReflectionTestUtils.setField(syncThumb2DBJob, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        syncThumb2DBJob.init();
+    }
+
+    /**
+     * 每次同步前按分片写入一个时间片的临时点赞数据
+     */
+    @Setup(Level.Invocation)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(entries);
+        thumbRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < entries; i++) {
+                long userId = random.nextLong(1L << 50);
+                long blogId = random.nextLong(1L << 50);
+                String key = RedisKeyUtil.getTempThumbKey(TIME_SLICE, RedisKeyUtil.getTempThumbShard(userId, shards), shards);
+                connection.hashCommands().hSet(key.getBytes(StandardCharsets.UTF_8),
+                        (userId + ":" + blogId).getBytes(StandardCharsets.UTF_8),
+                        (random.nextInt(10) < 8 ? "1" : "-1").getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        syncThumb2DBJob.destroy();
+        thumbRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public void drain() {
+        syncThumb2DBJob.syncThumb2DBByDate(TIME_SLICE);
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.shousi.thumbweb.config.LongRedisSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞状态值编解码：RedisConfig 中默认类型的 Jackson 序列化与 thumbRedisTemplate 的 ASCII Long 编解码，
+ * 每次操作为一次写入（serialize）加一次读取（deserialize），值为雪花算法量级的点赞记录 ID 或 ±1 计数
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ThumbCodecBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbCodecBenchmark {
+
+    @Param({"jackson", "ascii"})
+    public String codec;
+
+    @Param({"thumbId", "counter"})
+    public String value;
+
+    private RedisSerializer<Object> serializer;
+    private Long[] values;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        if ("jackson".equals(codec)) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+            serializer = new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+        } else {
+            serializer = (RedisSerializer<Object>) (RedisSerializer<?>) LongRedisSerializer.INSTANCE;
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        values = new Long[1024];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "thumbId".equals(value) ? 1_900_000_000_000_000_000L + random.nextLong(1L << 40) : (long) random.nextInt(-1, 2);
+        }
+    }
+
+    @Benchmark
+    public Object writeAndRead() {
+        Long v = values[next++ & (values.length - 1)];
+        return serializer.deserialize(serializer.serialize(v));
+    }
+}
@@ -0,0 +1,216 @@
+package com.shousi.thumbweb.benchmark;
+
+import cn.hutool.core.collection.ListUtil;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.shousi.thumbweb.mapper.ThumbMapper;
+import com.shousi.thumbweb.model.entity.Thumb;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞记录批量写库的 SQL 形式对比：逐行 JDBC batch（saveBatch）与多行 INSERT / INSERT IGNORE / 先查后插，
+ * OR 链删除与 (userId, blogId) IN 行构造器删除；以 H2 的 MySQL 兼容模式代替 MySQL，表中预置 10 万条记录
+ * <p>
+ * 内存数据库没有网络往返，逐行 batch 在 MySQL 上（未开启 rewriteBatchedStatements 时）的差距只会更大
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ThumbPersistBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbPersistBenchmark {
+
+    private static final int EXISTING_ROWS = 100_000;
+
+    /**
+     * 本次写库的行数，userId 从 FIRST_USER_ID 开始，与预置数据不重叠
+     */
+    private static final long FIRST_USER_ID = 1_000_000_000L;
+
+    private static final int DB_BATCH_SIZE = 500;
+
+    @Param({"1000"})
+    public int rows;
+
+    private JdbcDataSource dataSource;
+    private SqlSessionFactory sqlSessionFactory;
+    private List<Thumb> thumbList;
+
+    @Setup
+    public void setup() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:thumb_persist;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists thumb");
+            statement.execute("create table thumb (id bigint primary key, userId bigint not null, blogId bigint not null,"
+                    + " createTime datetime default CURRENT_TIMESTAMP not null)");
+            statement.execute("create unique index uk_userId_blogId on thumb (userId, blogId)");
+            statement.execute("insert into thumb (id, userId, blogId) select \"X\", \"X\" / 10, mod(\"X\" * 7919, 100000)"
+                    + " from system_range(1, " + EXISTING_ROWS + ")");
+        }
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        // 与 application.yml 一致，列名即字段名
+        configuration.setMapUnderscoreToCamelCase(false);
+        configuration.setEnvironment(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mapper/ThumbMapper.xml")) {
+            new XMLMapperBuilder(inputStream, configuration, "mapper/ThumbMapper.xml", configuration.getSqlFragments()).parse();
+        }
+        sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+
+        SplittableRandom random = new SplittableRandom(42);
+        thumbList = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Thumb thumb = new Thumb();
+            thumb.setUserId(FIRST_USER_ID + i);
+            thumb.setBlogId((long) random.nextInt(100_000));
+            thumbList.add(thumb);
+        }
+    }
+
+    /**
+     * 插入前清理上一次插入的记录并重新分配 id
+     */
+    @State(Scope.Benchmark)
+    public static class InsertState {
+
+        @Setup(Level.Invocation)
+        public void clean(ThumbPersistBenchmark benchmark) throws Exception {
+            benchmark.deleteInserted();
+            benchmark.thumbList.forEach(thumb -> thumb.setId(IdWorker.getId()));
+        }
+    }
+
+    /**
+     * 删除前插入待删除的记录
+     */
+    @State(Scope.Benchmark)
+    public static class DeleteState {
+
+        @Setup(Level.Invocation)
+        public void fill(ThumbPersistBenchmark benchmark) throws Exception {
+            benchmark.deleteInserted();
+            benchmark.thumbList.forEach(thumb -> thumb.setId(IdWorker.getId()));
+            try (SqlSession sqlSession = benchmark.sqlSessionFactory.openSession(true)) {
+                ListUtil.partition(benchmark.thumbList, DB_BATCH_SIZE).forEach(sqlSession.getMapper(ThumbMapper.class)::batchInsert);
+            }
+        }
+    }
+
+    private void deleteInserted() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("delete from thumb where userId >= " + FIRST_USER_ID);
+        }
+    }
+
+    /**
+     * saveBatch 的执行方式：BATCH 执行器逐行 INSERT
+     */
+    @Benchmark
+    public int insertRowByRow(InsertState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+            ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+            thumbList.forEach(thumbMapper::insert);
+            int size = sqlSession.flushStatements().size();
+            sqlSession.commit();
+            return size;
+        }
+    }
+
+    @Benchmark
+    public int insertMultiRow(InsertState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+            int inserted = 0;
+            for (List<Thumb> chunk : ListUtil.partition(thumbList, DB_BATCH_SIZE)) {
+                inserted += thumbMapper.batchInsert(chunk);
+            }
+            sqlSession.commit();
+            return inserted;
+        }
+    }
+
+    @Benchmark
+    public int insertIgnoreMultiRow(InsertState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+            int inserted = 0;
+            for (List<Thumb> chunk : ListUtil.partition(thumbList, DB_BATCH_SIZE)) {
+                inserted += thumbMapper.batchInsertIgnore(chunk);
+            }
+            sqlSession.commit();
+            return inserted;
+        }
+    }
+
+    /**
+     * ThumbSyncWriter 的方式：先查出已存在的（用户，博客），只插入不存在的
+     */
+    @Benchmark
+    public int insertIdempotent(InsertState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+            int inserted = 0;
+            for (List<Thumb> chunk : ListUtil.partition(thumbList, DB_BATCH_SIZE)) {
+                Set<String> existing = new HashSet<>();
+                thumbMapper.selectByUserIdAndBlogId(chunk).forEach(thumb -> existing.add(thumb.getUserId() + ":" + thumb.getBlogId()));
+                List<Thumb> insertList = chunk.stream().filter(thumb -> !existing.contains(thumb.getUserId() + ":" + thumb.getBlogId())).toList();
+                if (!insertList.isEmpty()) {
+                    inserted += thumbMapper.batchInsertIgnore(insertList);
+                }
+            }
+            sqlSession.commit();
+            return inserted;
+        }
+    }
+
+    /**
+     * 原删除方式：一条 WHERE (userId = ? AND blogId = ?) OR ... 语句
+     */
+    @Benchmark
+    public int deleteOrChain(DeleteState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            LambdaQueryWrapper<Thumb> queryWrapper = new LambdaQueryWrapper<>();
+            for (Thumb thumb : thumbList) {
+                queryWrapper.or().eq(Thumb::getUserId, thumb.getUserId()).eq(Thumb::getBlogId, thumb.getBlogId());
+            }
+            int deleted = sqlSession.getMapper(ThumbMapper.class).delete(queryWrapper);
+            sqlSession.commit();
+            return deleted;
+        }
+    }
+
+    @Benchmark
+    public int deleteRowIn(DeleteState state) {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+            int deleted = 0;
+            for (List<Thumb> chunk : ListUtil.partition(thumbList, DB_BATCH_SIZE)) {
+                deleted += thumbMapper.batchDeleteByUserIdAndBlogId(chunk);
+            }
+            sqlSession.commit();
+            return deleted;
+        }
+    }
+}
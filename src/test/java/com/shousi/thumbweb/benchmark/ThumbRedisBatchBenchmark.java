@@ -0,0 +1,106 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.RedisBatchProperties;
+import com.shousi.thumbweb.manager.batch.ThumbOperation;
+import com.shousi.thumbweb.manager.batch.ThumbRedisBatcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 点赞 Lua 脚本合并提交：每次 Lua 调用占用连接池中的一个连接一个往返（rttMicros），
+ * 对比逐个调用（direct）与合并提交（batched）在虚拟线程上处理一波并发点赞的耗时，
+ * 结束时打印每次点赞平均的 Lua 调用次数
+ * <p>
+ * 每次操作完成 requests 个点赞
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ThumbRedisBatchBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbRedisBatchBenchmark {
+
+    @Param({"direct", "batched"})
+    public String impl;
+
+    /**
+     * 每波并发点赞数
+     */
+    @Param({"1", "2000"})
+    public int requests;
+
+    @Param({"200"})
+    public long rttMicros;
+
+    /**
+     * Jedis 连接池大小
+     */
+    @Param({"64"})
+    public int connections;
+
+    private Semaphore pool;
+    private ExecutorService executorService;
+    private ThumbRedisBatcher thumbRedisBatcher;
+    private long nextBlogId;
+
+    private final LongAdder luaCalls = new LongAdder();
+    private final LongAdder thumbs = new LongAdder();
+
+    @Setup
+    public void setup() {
+        pool = new Semaphore(connections);
+        executorService = Executors.newVirtualThreadPerTaskExecutor();
+        RedisBatchProperties redisBatchProperties = new RedisBatchProperties();
+        redisBatchProperties.setEnabled("batched".equals(impl));
+        thumbRedisBatcher = new ThumbRedisBatcher() {
+            @Override
+            public List<Long> executeBatch(List<ThumbOperation> batch) {
+                roundTrip();
+                return batch.stream().map(operation -> 1L).toList();
+            }
+        };
+        ReflectionTestUtils.setField(thumbRedisBatcher, "redisBatchProperties", redisBatchProperties);
+        thumbRedisBatcher.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        thumbRedisBatcher.stop();
+        executorService.shutdownNow();
+        System.out.printf("%n%s: %d thumbs, %d lua calls, %.3f calls/thumb%n",
+                impl, thumbs.sum(), luaCalls.sum(), (double) luaCalls.sum() / thumbs.sum());
+    }
+
+    private void roundTrip() {
+        pool.acquireUninterruptibly();
+        try {
+            luaCalls.increment();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+        } finally {
+            pool.release();
+        }
+    }
+
+    @Benchmark
+    public long burst() throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            long blogId = nextBlogId++;
+            futures.add(executorService.submit(() -> thumbRedisBatcher.execute(1, blogId % 1000, blogId)));
+        }
+        long done = 0;
+        for (Future<Long> future : futures) {
+            done += future.get();
+        }
+        thumbs.add(requests);
+        return done;
+    }
+}
@@ -0,0 +1,146 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.LongRedisSerializer;
+import com.shousi.thumbweb.config.ThumbStateProperties;
+import com.shousi.thumbweb.manager.state.BucketedThumbStateStore;
+import com.shousi.thumbweb.manager.state.HashThumbStateStore;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户点赞状态布局的内存与读取开销，需要本机 6379 端口的 Redis，使用 15 号库并在结束后清空
+ * <p>
+ * 初始化时按 profile 写入 100 万条点赞（light：10 万用户各 10 条；heavy：1000 用户各 1000 条），
+ * 打印 used_memory 的增量换算的每百万点赞内存；基准方法为一个用户一页 20 篇博客的批量读取
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ThumbStateMemoryBenchmark"
+ * 对比调大 listpack 上限：-Djmh.args="ThumbStateMemoryBenchmark -p layout=hash -p listpackEntries=1024"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbStateMemoryBenchmark {
+
+    private static final int THUMBS = 1_000_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"hash", "bucketed"})
+    public String layout;
+
+    @Param({"light", "heavy"})
+    public String profile;
+
+    @Param({"16"})
+    public int buckets;
+
+    /**
+     * 服务端 hash-max-listpack-entries（6.x 为 hash-max-ziplist-entries），结束后恢复原值
+     */
+    @Param({"128"})
+    public String listpackEntries;
+
+    private String originListpackEntries;
+
+    private JedisConnectionFactory connectionFactory;
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+    private ThumbStateStore thumbStateStore;
+    private long[][] userBlogIds;
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        thumbRedisTemplate = new RedisTemplate<>();
+        thumbRedisTemplate.setConnectionFactory(connectionFactory);
+        thumbRedisTemplate.setKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        thumbRedisTemplate.setHashValueSerializer(LongRedisSerializer.INSTANCE);
+        thumbRedisTemplate.afterPropertiesSet();
+        if ("hash".equals(layout)) {
+            thumbStateStore = new HashThumbStateStore();
+        } else {
+            ThumbStateProperties thumbStateProperties = new ThumbStateProperties();
+            thumbStateProperties.setBuckets(buckets);
+            BucketedThumbStateStore bucketedThumbStateStore = new BucketedThumbStateStore();
+            ReflectionTestUtils.setField(bucketedThumbStateStore, "thumbStateProperties", thumbStateProperties);
+            bucketedThumbStateStore.init();
+            thumbStateStore = bucketedThumbStateStore;
+        }
+        ReflectionTestUtils.setField(thumbStateStore, "thumbRedisTemplate", thumbRedisTemplate);
+
+        thumbRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            originListpackEntries = connection.serverCommands().getConfig("hash-max-ziplist-entries").getProperty("hash-max-ziplist-entries");
+            connection.serverCommands().setConfig("hash-max-ziplist-entries", listpackEntries);
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        long before = usedMemory();
+        int perUser = "light".equals(profile) ? 10 : 1000;
+        int users = THUMBS / perUser;
+        userBlogIds = new long[users][perUser];
+        long nextThumbId = 1_900_000_000_000_000_000L;
+        for (int u = 0; u < users; u++) {
+            Map<String, Long> values = new HashMap<>();
+            for (int i = 0; i < perUser; i++) {
+                // 雪花算法量级的博客 ID 与点赞记录 ID
+                userBlogIds[u][i] = 1_800_000_000_000_000_000L + random.nextLong(1L << 50);
+                values.put(Long.toString(userBlogIds[u][i]), nextThumbId++);
+            }
+            thumbStateStore.putAll(userKey(u), values);
+        }
+        long used = usedMemory() - before;
+        System.out.printf("%n%s/%s/entries=%s: %d keys, %.1f MB per million thumbs, %.1f B per thumb%n",
+                layout, profile, listpackEntries, thumbRedisTemplate.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize()),
+                used / (double) THUMBS * 1_000_000 / 1024 / 1024, used / (double) THUMBS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        thumbRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            connection.serverCommands().setConfig("hash-max-ziplist-entries", originListpackEntries);
+            return null;
+        });
+        connectionFactory.destroy();
+    }
+
+    private long usedMemory() {
+        Properties info = thumbRedisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    private static String userKey(int user) {
+        return "thumb:" + user;
+    }
+
+    /**
+     * 一页博客中一半已点赞
+     */
+    @Benchmark
+    public List<Long> readPage() {
+        int user = random.nextInt(userBlogIds.length);
+        long[] blogIds = userBlogIds[user];
+        List<String> fields = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            fields.add(Long.toString(i % 2 == 0 ? blogIds[random.nextInt(blogIds.length)] : random.nextLong()));
+        }
+        return thumbStateStore.multiGet(userKey(user), fields);
+    }
+}
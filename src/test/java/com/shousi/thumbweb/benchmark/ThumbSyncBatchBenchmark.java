@@ -0,0 +1,50 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.job.ThumbSyncBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncThumb2DBJob 汇总一个时间片临时点赞数据的纯内存开销，不含 Redis 读取与数据库写入
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="ThumbSyncBatchBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThumbSyncBatchBenchmark {
+
+    /**
+     * 一个时间片内的 userId:blogId 数量
+     */
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private Map<String, Long> tempThumbMap;
+
+    @Setup
+    public void setup() {
+        int[] users = ZipfKeys.ranks(entries, 1_000_000, 0.8, 42);
+        int[] blogs = ZipfKeys.ranks(entries, 100_000, 1.1, 7);
+        SplittableRandom random = new SplittableRandom(1);
+        tempThumbMap = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            // 点赞为主，少量取消点赞和抵消为 0 的记录
+            int roll = random.nextInt(10);
+            long thumbType = roll < 7 ? 1 : roll < 9 ? -1 : 0;
+            tempThumbMap.put(users[i] + ":" + blogs[i], thumbType);
+        }
+    }
+
+    @Benchmark
+    public ThumbSyncBatch aggregate() {
+        return ThumbSyncBatch.aggregate(tempThumbMap);
+    }
+}
@@ -0,0 +1,51 @@
+package com.shousi.thumbweb.benchmark;
+
+import com.shousi.thumbweb.config.LockProperties;
+import com.shousi.thumbweb.manager.lock.UserLockManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户锁基准：String.intern() + synchronized 与分段 ReentrantLock 在大量不同用户下的吞吐，
+ * 用户 ID 持续递增，模拟 intern 字符串表随用户数增长
+ * <p>
+ * 运行：mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserLockBenchmark" -Djmh.threads=8
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLockBenchmark {
+
+    @Param({"intern", "striped"})
+    public String impl;
+
+    private UserLockManager userLockManager;
+
+    @Setup
+    public void setup() {
+        userLockManager = new UserLockManager();
+        ReflectionTestUtils.setField(userLockManager, "lockProperties", new LockProperties());
+        userLockManager.init();
+    }
+
+    @State(Scope.Thread)
+    public static class UserIds {
+        long next = Thread.currentThread().threadId() << 40;
+    }
+
+    @Benchmark
+    public long lock(UserIds userIds) {
+        Long userId = userIds.next++;
+        if ("intern".equals(impl)) {
+            synchronized (userId.toString().intern()) {
+                return userId;
+            }
+        }
+        return userLockManager.executeWithLock(userId, () -> userId);
+    }
+}
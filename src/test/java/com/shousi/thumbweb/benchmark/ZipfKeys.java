@@ -0,0 +1,57 @@
+package com.shousi.thumbweb.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * 预生成服从 Zipf 分布的 Key 序列，模拟少量热点博客承载大部分访问的场景
+ */
+final class ZipfKeys {
+
+    private ZipfKeys() {
+    }
+
+    /**
+     * @param size     生成的样本数量
+     * @param universe Key 的取值范围 [0, universe)
+     * @param skew     Zipf 偏斜系数，越大越集中
+     * @param seed     随机种子，保证不同提交之间负载一致
+     * @return 每个样本对应的 Key 序号
+     */
+    static int[] ranks(int size, int universe, double skew, long seed) {
+        double[] cdf = new double[universe];
+        double sum = 0;
+        for (int i = 0; i < universe; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = universe - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cdf[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            ranks[i] = low;
+        }
+        return ranks;
+    }
+
+    /**
+     * 生成形如 thumb:{userId}:{blogId} 的复合 Key 序列
+     */
+    static String[] compositeKeys(int size, int universe, double skew, long seed) {
+        int[] ranks = ranks(size, universe, skew, seed);
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "thumb:" + (ranks[i] % 1000) + ":" + ranks[i];
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,42 @@
+package com.shousi.thumbweb.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongRedisSerializerTest {
+
+    private final LongRedisSerializer serializer = LongRedisSerializer.INSTANCE;
+
+    private Long read(String value) {
+        return serializer.deserialize(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void roundTrip() {
+        for (long value : new long[]{0, 1, -1, 1912345678901234567L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(Long.toString(value), new String(serializer.serialize(value), StandardCharsets.US_ASCII));
+            assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+        }
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(null));
+    }
+
+    @Test
+    void readsLegacyValues() {
+        // Jackson 写入的 Long 与 Lua 写入的计数都是纯数字，JSON 字符串形式的 ID 带引号
+        assertEquals(123L, read("123"));
+        assertEquals(-1L, read("-1"));
+        assertEquals(123L, read("\"123\""));
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        for (String value : new String[]{"-", "1.5", "abc", "\"\"", "9223372036854775808", "-9223372036854775809"}) {
+            assertThrows(SerializationException.class, () -> read(value), value);
+        }
+    }
+}
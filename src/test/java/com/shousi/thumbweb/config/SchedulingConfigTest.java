@@ -0,0 +1,59 @@
+package com.shousi.thumbweb.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskSchedulingAutoConfiguration.class))
+            .withUserConfiguration(SchedulingConfig.class, SlowFixedRateJob.class)
+            .withPropertyValues("spring.threads.virtual.enabled=true", "spring.task.scheduling.pool.size=4");
+
+    @Test
+    void scheduledJobsStayOnPlatformPoolWithVirtualThreads() {
+        contextRunner.run(context -> {
+            TaskScheduler taskScheduler = context.getBean(TaskScheduler.class);
+            ThreadPoolTaskScheduler threadPoolTaskScheduler = assertInstanceOf(ThreadPoolTaskScheduler.class, taskScheduler);
+            assertEquals(4, threadPoolTaskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize());
+
+            // 执行时间远超周期的固定频率任务不会与自身重叠
+            SlowFixedRateJob job = context.getBean(SlowFixedRateJob.class);
+            assertTrue(job.runs.await(5, TimeUnit.SECONDS));
+            assertEquals(1, job.maxConcurrent.get());
+            assertFalse(job.virtual);
+        });
+    }
+
+    @Configuration
+    @EnableScheduling
+    static class SlowFixedRateJob {
+
+        final CountDownLatch runs = new CountDownLatch(3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        volatile boolean virtual;
+
+        @Scheduled(fixedRate = 10)
+        public void run() throws InterruptedException {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            virtual |= Thread.currentThread().isVirtual();
+            Thread.sleep(50);
+            running.decrementAndGet();
+            runs.countDown();
+        }
+    }
+}
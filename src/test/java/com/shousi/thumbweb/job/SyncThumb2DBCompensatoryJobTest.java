@@ -0,0 +1,157 @@
+package com.shousi.thumbweb.job;
+
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.manager.sync.ThumbSyncCoordinator;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 以本机 Redis（15 号库）验证补偿任务按分片保存的 SCAN 检查点、遗留 key 筛选与跨次续扫
+ */
+class SyncThumb2DBCompensatoryJobTest {
+
+    private static final int SHARDS = 4;
+
+    private JedisConnectionFactory connectionFactory;
+    private StringRedisTemplate stringRedisTemplate;
+    private ThumbSyncProperties thumbSyncProperties;
+    private ThumbSyncCoordinator thumbSyncCoordinator;
+
+    /**
+     * 每次调用 syncTempThumbKeys 收到的 key
+     */
+    private final List<List<String>> synced = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().serverCommands().flushDb();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+
+        thumbSyncProperties = new ThumbSyncProperties();
+        thumbSyncProperties.setShards(SHARDS);
+        thumbSyncProperties.getCompensator().setScanCount(5);
+        thumbSyncProperties.getCompensator().setMaxKeysPerRun(4);
+        // 本节点只负责 0、1 号分片
+        thumbSyncCoordinator = new ThumbSyncCoordinator();
+        ReflectionTestUtils.setField(thumbSyncCoordinator, "thumbSyncProperties", thumbSyncProperties);
+        @SuppressWarnings("unchecked")
+        Set<Integer> ownedShards = (Set<Integer>) ReflectionTestUtils.getField(thumbSyncCoordinator, "ownedShards");
+        ownedShards.addAll(List.of(0, 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.getConnection().serverCommands().flushDb();
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void onlyOwnedBacklogIsSyncedAndCheckpointResumesAcrossRuns() {
+        DateTime now = DateUtil.date();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            String timeSlice = RedisKeyUtil.getTimeSlice(DateUtil.offsetMinute(now, -10 - i));
+            for (int shard = 0; shard < SHARDS; shard++) {
+                String key = RedisKeyUtil.getTempThumbKey(timeSlice, shard, SHARDS);
+                // 同步中断遗留的同步中 key 按原 key 同步
+                stringRedisTemplate.opsForHash().put(shard == 1 ? RedisKeyUtil.getProcessingTempThumbKey(key) : key, "1:1", "1");
+                if (shard <= 1) {
+                    expected.add(key);
+                }
+            }
+        }
+        // 仍在定时任务回看范围内的时间片不由补偿任务同步
+        String recentSlice = RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -10));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            stringRedisTemplate.opsForHash().put(RedisKeyUtil.getTempThumbKey(recentSlice, shard, SHARDS), "1:1", "1");
+        }
+        stringRedisTemplate.opsForValue().set("thumb:other", "1");
+        // 已登记待同步索引的时间片由定时任务按顺序同步
+        String pendingKey = RedisKeyUtil.getTempThumbKey(RedisKeyUtil.getTimeSlice(DateUtil.offsetMinute(now, -20)), 0, SHARDS);
+        stringRedisTemplate.opsForHash().put(pendingKey, "1:1", "1");
+        stringRedisTemplate.opsForZSet().add(RedisKeyUtil.getSyncPendingKey(0), pendingKey, 0);
+
+        SyncThumb2DBCompensatoryJob compensatoryJob = newCompensatoryJob();
+        compensatoryJob.run();
+        String checkpoint = stringRedisTemplate.opsForValue().get(RedisKeyUtil.getSyncCursorKey(0));
+        assertNotNull(checkpoint);
+        assertNotEquals("0", checkpoint, "一次调用不应扫描完整个库");
+        assertNull(stringRedisTemplate.opsForValue().get(RedisKeyUtil.getSyncCursorKey(1)), "每次只处理一个分片");
+        assertFalse(synced.isEmpty());
+
+        // 重启后各分片从自己的检查点继续扫描，直到都完成一轮
+        compensatoryJob = newCompensatoryJob();
+        for (int i = 0; i < 100 && !(scanned(0) && scanned(1)); i++) {
+            compensatoryJob.run();
+        }
+        assertTrue(scanned(0) && scanned(1));
+        assertNull(stringRedisTemplate.opsForValue().get(RedisKeyUtil.getSyncCursorKey(2)));
+        List<String> all = synced.stream().flatMap(List::stream).toList();
+        assertEquals(expected, new HashSet<>(all));
+        assertEquals(all.size(), new HashSet<>(all).size(), "续扫不应重复同步");
+        assertTrue(stringRedisTemplate.getExpire(RedisKeyUtil.getSyncCursorKey(0)) > 0);
+    }
+
+    @Test
+    void checkpointIsNotAdvancedWhileStopping() {
+        String backlogKey = RedisKeyUtil.getTempThumbKey(RedisKeyUtil.getTimeSlice(DateUtil.offsetMinute(DateUtil.date(), -10)), 0, SHARDS);
+        stringRedisTemplate.opsForHash().put(backlogKey, "1:1", "1");
+        SyncThumb2DBCompensatoryJob compensatoryJob = newCompensatoryJob();
+        SyncThumb2DBJob syncThumb2DBJob = (SyncThumb2DBJob) ReflectionTestUtils.getField(compensatoryJob, "syncThumb2DBJob");
+        syncThumb2DBJob.stop();
+
+        compensatoryJob.run();
+        assertEquals(List.of(List.of(backlogKey)), synced);
+        assertNull(stringRedisTemplate.opsForValue().get(RedisKeyUtil.getSyncCursorKey(0)));
+    }
+
+    private boolean scanned(int shard) {
+        return "0".equals(stringRedisTemplate.opsForValue().get(RedisKeyUtil.getSyncCursorKey(shard)));
+    }
+
+    private SyncThumb2DBCompensatoryJob newCompensatoryJob() {
+        SyncThumb2DBJob syncThumb2DBJob = new SyncThumb2DBJob() {
+            @Override
+            public void syncTempThumbKeys(Collection<String> tempThumbKeys, Executor executor) {
+                synced.add(new ArrayList<>(tempThumbKeys));
+                // 同步完成后临时 key 被删除
+                for (String tempThumbKey : tempThumbKeys) {
+                    stringRedisTemplate.delete(List.of(tempThumbKey, RedisKeyUtil.getProcessingTempThumbKey(tempThumbKey)));
+                }
+            }
+        };
+        SyncThumb2DBCompensatoryJob compensatoryJob = new SyncThumb2DBCompensatoryJob();
+        ReflectionTestUtils.setField(compensatoryJob, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(compensatoryJob, "syncThumb2DBJob", syncThumb2DBJob);
+        ReflectionTestUtils.setField(compensatoryJob, "thumbSyncCoordinator", thumbSyncCoordinator);
+        ReflectionTestUtils.setField(compensatoryJob, "thumbSyncProperties", thumbSyncProperties);
+        return compensatoryJob;
+    }
+}
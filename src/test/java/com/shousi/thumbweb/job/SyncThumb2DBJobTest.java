@@ -0,0 +1,302 @@
+package com.shousi.thumbweb.job;
+
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import com.shousi.thumbweb.config.RedisBatchProperties;
+import com.shousi.thumbweb.config.RedisConfig;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.manager.batch.ThumbOperation;
+import com.shousi.thumbweb.manager.batch.ThumbRedisBatcher;
+import com.shousi.thumbweb.manager.state.HashThumbStateStore;
+import com.shousi.thumbweb.manager.sync.ThumbSyncCoordinator;
+import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 以本机 Redis（15 号库）验证同一分片的时间片按先后顺序同步，以及分片的博客点赞数变化量随同步扣除
+ */
+class SyncThumb2DBJobTest {
+
+    private static final int SHARDS = 4;
+
+    private JedisConnectionFactory connectionFactory;
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
+    private ThumbSyncProperties thumbSyncProperties;
+    private SyncThumb2DBJob syncThumb2DBJob;
+
+    /**
+     * 按写库顺序记录的（用户，博客，点赞类型）
+     */
+    private final List<String> persisted = Collections.synchronizedList(new ArrayList<>());
+
+    private Consumer<ThumbSyncBatch> beforePersist = batch -> {
+    };
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().serverCommands().flushDb();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+        thumbRedisTemplate = new RedisConfig().thumbRedisTemplate(connectionFactory);
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+
+        thumbSyncProperties = new ThumbSyncProperties();
+        thumbSyncProperties.setShards(SHARDS);
+        thumbSyncProperties.setCountDeltaShards(SHARDS);
+        thumbSyncProperties.getCoordinator().setEnabled(false);
+        syncThumb2DBJob = newJob();
+    }
+
+    private SyncThumb2DBJob newJob() {
+        ThumbSyncCoordinator thumbSyncCoordinator = new ThumbSyncCoordinator();
+        ReflectionTestUtils.setField(thumbSyncCoordinator, "thumbSyncProperties", thumbSyncProperties);
+        SyncThumb2DBJob job = new SyncThumb2DBJob() {
+            @Override
+            protected void persist(ThumbSyncBatch batch) {
+                beforePersist.accept(batch);
+                for (Thumb thumb : batch.getThumbList()) {
+                    persisted.add(thumb.getUserId() + ":" + thumb.getBlogId() + ":1");
+                }
+                for (Thumb thumb : batch.getRemoveList()) {
+                    persisted.add(thumb.getUserId() + ":" + thumb.getBlogId() + ":-1");
+                }
+            }
+        };
+        ReflectionTestUtils.setField(job, "thumbRedisTemplate", thumbRedisTemplate);
+        ReflectionTestUtils.setField(job, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(job, "thumbSyncProperties", thumbSyncProperties);
+        ReflectionTestUtils.setField(job, "thumbSyncCoordinator", thumbSyncCoordinator);
+        ReflectionTestUtils.setField(job, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        job.init();
+        return job;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            syncThumb2DBJob.destroy();
+            connectionFactory.getConnection().serverCommands().flushDb();
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void slicesOfOneShardAreDrainedOldestFirst() {
+        DateTime now = DateUtil.date();
+        String older = RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -40));
+        String newer = RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -20));
+        // 0 号分片的用户先点赞、后取消点赞；不分片的 key 归 0 号分片，同一时间片中比分片 key 更早
+        long userId = userInShard(0);
+        String newerKey = tempThumb(newer, userId, 10L, -1L);
+        String olderKey = tempThumb(older, userId, 10L, 1L);
+        String legacyKey = RedisKeyUtil.getTempThumbKey(older);
+        thumbRedisTemplate.opsForHash().put(legacyKey, userId + ":20", 1L);
+        String otherShardKey = tempThumb(newer, userInShard(1), 10L, 1L);
+
+        syncThumb2DBJob.syncTempThumbKeys(List.of(newerKey, otherShardKey, olderKey, legacyKey));
+
+        assertEquals(4, persisted.size());
+        List<String> shardOrder = persisted.stream().filter(thumb -> thumb.startsWith(userId + ":")).toList();
+        assertEquals(List.of(userId + ":20:1", userId + ":10:1", userId + ":10:-1"), shardOrder);
+    }
+
+    @Test
+    void failedSliceKeepsLaterSlicesOfSameShard() {
+        DateTime now = DateUtil.date();
+        long userId = userInShard(0);
+        String olderKey = tempThumb(RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -40)), userId, 10L, 1L);
+        String newerKey = tempThumb(RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -20)), userId, 10L, -1L);
+        String otherShardKey = tempThumb(RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(now, -20)), userInShard(1), 10L, 1L);
+        beforePersist = batch -> {
+            if (batch.getThumbList().stream().anyMatch(thumb -> thumb.getUserId() == userId)) {
+                throw new RuntimeException("数据库不可用");
+            }
+        };
+
+        syncThumb2DBJob.syncTempThumbKeys(List.of(newerKey, olderKey, otherShardKey));
+
+        // 失败的时间片留在同步中 key，之后的时间片不提前写库，其他分片不受影响
+        assertEquals(1, persisted.size());
+        assertTrue(thumbRedisTemplate.hasKey(RedisKeyUtil.getProcessingTempThumbKey(olderKey)));
+        assertTrue(thumbRedisTemplate.hasKey(newerKey));
+        assertFalse(thumbRedisTemplate.hasKey(otherShardKey));
+    }
+
+    @Test
+    void countDeltaShardsFollowThumbsAndDrain() {
+        HashThumbStateStore thumbStateStore = new HashThumbStateStore();
+        ReflectionTestUtils.setField(thumbStateStore, "thumbRedisTemplate", thumbRedisTemplate);
+        ThumbRedisBatcher thumbRedisBatcher = new ThumbRedisBatcher();
+        ReflectionTestUtils.setField(thumbRedisBatcher, "thumbRedisTemplate", thumbRedisTemplate);
+        ReflectionTestUtils.setField(thumbRedisBatcher, "redisBatchProperties", new RedisBatchProperties());
+        ReflectionTestUtils.setField(thumbRedisBatcher, "thumbStateStore", thumbStateStore);
+        ReflectionTestUtils.setField(thumbRedisBatcher, "thumbSyncProperties", thumbSyncProperties);
+        String timeSlice = RedisKeyUtil.getTimeSlice();
+
+        List<Long> blogIds = List.of(10L, 11L, 12L, 13L);
+        List<ThumbOperation> operations = new ArrayList<>();
+        for (Long blogId : blogIds) {
+            operations.add(new ThumbOperation(1, 1L, blogId));
+            operations.add(new ThumbOperation(1, 2L, blogId));
+        }
+        operations.add(new ThumbOperation(-1, 2L, 13L));
+        // 重复点赞不计入变化量
+        operations.add(new ThumbOperation(1, 1L, 10L));
+        thumbRedisBatcher.executeBatch(operations);
+
+        Map<Long, Long> expected = Map.of(10L, 2L, 11L, 2L, 12L, 2L, 13L, 1L);
+        Set<String> deltaKeys = new HashSet<>();
+        expected.forEach((blogId, delta) -> {
+            String deltaKey = RedisKeyUtil.getBlogThumbCountDeltaKey(blogId, SHARDS);
+            deltaKeys.add(deltaKey);
+            assertEquals(delta, thumbRedisTemplate.<String, Long>opsForHash().get(deltaKey, blogId.toString()));
+        });
+        assertTrue(deltaKeys.size() > 1, "变化量应分布在多个分片 key 上");
+        assertTrue(pendingSlices() > 0);
+
+        // 同步写库后扣除变化量，归零的字段被删除
+        syncThumb2DBJob.syncThumb2DBByDate(timeSlice);
+        // 跨过时间片边界时写入的是下一个时间片
+        if (!timeSlice.equals(RedisKeyUtil.getTimeSlice())) {
+            syncThumb2DBJob.syncThumb2DBByDate(RedisKeyUtil.getTimeSlice());
+        }
+        assertEquals(7, persisted.size());
+        for (String deltaKey : deltaKeys) {
+            assertFalse(thumbRedisTemplate.hasKey(deltaKey));
+        }
+        assertEquals(0, pendingSlices());
+    }
+
+    @Test
+    void pendingSliceBeyondLookbackBlocksNewerSlicesOfSameShard() {
+        DateTime now = DateUtil.date();
+        long userId = userInShard(0);
+        // 数据库长时间不可用，遗留的旧时间片早已超出回看范围
+        pendingTempThumb(DateUtil.offsetMinute(now, -30), userId, 10L, 1L);
+        String newerKey = pendingTempThumb(DateUtil.offsetSecond(now, -20), userId, 10L, -1L);
+        boolean[] databaseDown = {true};
+        beforePersist = batch -> {
+            if (databaseDown[0]) {
+                throw new RuntimeException("数据库不可用");
+            }
+        };
+
+        syncThumb2DBJob.run();
+        assertTrue(persisted.isEmpty());
+        assertTrue(thumbRedisTemplate.hasKey(newerKey));
+
+        // 恢复后从最早的时间片开始同步
+        databaseDown[0] = false;
+        syncThumb2DBJob.run();
+        assertEquals(List.of(userId + ":10:1", userId + ":10:-1"), persisted);
+        assertEquals(0, pendingSlices());
+    }
+
+    @Test
+    void chunkDrainedTwiceDuringHandoverSubtractsDeltaOnce() {
+        long userId = userInShard(0);
+        String tempThumbKey = tempThumb(RedisKeyUtil.getTimeSlice(DateUtil.offsetSecond(DateUtil.date(), -20)), userId, 10L, 1L);
+        String deltaKey = RedisKeyUtil.getBlogThumbCountDeltaKey(10L, SHARDS);
+        thumbRedisTemplate.opsForHash().put(deltaKey, "10", 1L);
+        // 本节点读出一块、写库提交前，分片交给另一节点，另一节点同步了同一块
+        SyncThumb2DBJob otherJob = newJob();
+        boolean[] handedOver = {false};
+        beforePersist = batch -> {
+            if (!handedOver[0]) {
+                handedOver[0] = true;
+                otherJob.syncTempThumbKeys(List.of(tempThumbKey));
+            }
+        };
+        try {
+            syncThumb2DBJob.syncTempThumbKeys(List.of(tempThumbKey));
+        } finally {
+            otherJob.destroy();
+        }
+
+        // 两个节点都写了库（数据库幂等），变化量只扣除一次
+        assertEquals(List.of(userId + ":10:1", userId + ":10:1"), persisted);
+        assertFalse(thumbRedisTemplate.hasKey(deltaKey));
+        assertFalse(thumbRedisTemplate.hasKey(RedisKeyUtil.getProcessingTempThumbKey(tempThumbKey)));
+    }
+
+    private String tempThumb(String timeSlice, Long userId, Long blogId, Long thumbType) {
+        String key = RedisKeyUtil.getTempThumbKey(timeSlice, RedisKeyUtil.getTempThumbShard(userId, SHARDS), SHARDS);
+        thumbRedisTemplate.opsForHash().put(key, userId + ":" + blogId, thumbType);
+        return key;
+    }
+
+    /**
+     * 与点赞脚本一样写入临时点赞记录，并登记到分片的待同步时间片索引
+     */
+    private String pendingTempThumb(Date date, Long userId, Long blogId, Long thumbType) {
+        String key = tempThumb(RedisKeyUtil.getTimeSlice(date), userId, blogId, thumbType);
+        stringRedisTemplate.opsForZSet().add(RedisKeyUtil.getSyncPendingKey(RedisKeyUtil.parseTempThumbShard(key)), key,
+                RedisKeyUtil.getTimeSliceEpochSecond(date));
+        return key;
+    }
+
+    private long pendingSlices() {
+        long pendingSlices = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Long size = stringRedisTemplate.opsForZSet().zCard(RedisKeyUtil.getSyncPendingKey(shard));
+            pendingSlices += size == null ? 0 : size;
+        }
+        return pendingSlices;
+    }
+
+    private static long userInShard(int shard) {
+        long userId = 1;
+        while (RedisKeyUtil.getTempThumbShard(userId, SHARDS) != shard) {
+            userId++;
+        }
+        return userId;
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.shousi.thumbweb.job;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.mapper.BlogMapper;
+import com.shousi.thumbweb.mapper.ThumbMapper;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 以 H2 的 MySQL 兼容模式验证写库的幂等性
+ */
+class ThumbSyncWriterTest {
+
+    private JdbcDataSource dataSource;
+    private SqlSession sqlSession;
+    private ThumbSyncWriter thumbSyncWriter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:thumb_sync_writer;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table thumb (id bigint primary key, userId bigint not null, blogId bigint not null,"
+                    + " createTime datetime default CURRENT_TIMESTAMP not null)");
+            statement.execute("create unique index uk_userId_blogId on thumb (userId, blogId)");
+            statement.execute("create table blog (id bigint primary key, thumbCount int not null default 0)");
+            statement.execute("insert into blog (id) values (10), (20)");
+        }
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(false);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        for (String resource : new String[]{"mapper/ThumbMapper.xml", "mapper/BlogMapper.xml"}) {
+            try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+                new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+            }
+        }
+        sqlSession = new MybatisSqlSessionFactoryBuilder().build(configuration).openSession(true);
+        thumbSyncWriter = new ThumbSyncWriter();
+        ReflectionTestUtils.setField(thumbSyncWriter, "thumbMapper", sqlSession.getMapper(ThumbMapper.class));
+        ReflectionTestUtils.setField(thumbSyncWriter, "blogMapper", sqlSession.getMapper(BlogMapper.class));
+        ReflectionTestUtils.setField(thumbSyncWriter, "thumbSyncProperties", new ThumbSyncProperties());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sqlSession.close();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+    }
+
+    @Test
+    void replayedBatchDoesNotChangeRowsOrCounts() throws Exception {
+        ThumbSyncBatch batch = new ThumbSyncBatch();
+        batch.add(1L, 10L, 1);
+        batch.add(2L, 10L, 1);
+        batch.add(3L, 20L, 1);
+        thumbSyncWriter.write(batch);
+        assertEquals(3, count("select count(*) from thumb"));
+        assertEquals(2, count("select thumbCount from blog where id = 10"));
+
+        // 提交后、删除 Redis 数据前宕机，同一批数据被再次同步
+        ThumbSyncBatch replay = new ThumbSyncBatch();
+        replay.add(1L, 10L, 1);
+        replay.add(2L, 10L, 1);
+        replay.add(3L, 20L, 1);
+        thumbSyncWriter.write(replay);
+        assertEquals(3, count("select count(*) from thumb"));
+        assertEquals(2, count("select thumbCount from blog where id = 10"));
+        assertEquals(1, count("select thumbCount from blog where id = 20"));
+    }
+
+    @Test
+    void replayedUnthumbIsDeletedOnce() throws Exception {
+        ThumbSyncBatch batch = new ThumbSyncBatch();
+        batch.add(1L, 10L, 1);
+        batch.add(2L, 10L, 1);
+        thumbSyncWriter.write(batch);
+
+        for (int i = 0; i < 2; i++) {
+            ThumbSyncBatch unthumb = new ThumbSyncBatch();
+            unthumb.add(1L, 10L, -1);
+            thumbSyncWriter.write(unthumb);
+        }
+        assertEquals(1, count("select count(*) from thumb"));
+        assertEquals(1, count("select thumbCount from blog where id = 10"));
+    }
+
+    @Test
+    void concurrentInsertFailsInsteadOfMiscounting() throws Exception {
+        ThumbMapper thumbMapper = sqlSession.getMapper(ThumbMapper.class);
+        // 查询之后、插入之前，其他事务抢先写入了同一条（用户，博客）
+        ThumbMapper racingThumbMapper = (ThumbMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ThumbMapper.class}, (proxy, method, args) -> {
+                    if ("batchInsertIgnore".equals(method.getName())) {
+                        execute("insert into thumb (id, userId, blogId) values (100, 1, 10)");
+                    }
+                    return method.invoke(thumbMapper, args);
+                });
+        ReflectionTestUtils.setField(thumbSyncWriter, "thumbMapper", racingThumbMapper);
+
+        ThumbSyncBatch batch = new ThumbSyncBatch();
+        batch.add(1L, 10L, 1);
+        batch.add(2L, 10L, 1);
+        assertThrows(RuntimeException.class, () -> thumbSyncWriter.write(batch));
+        // 未按预期行数更新点赞数，由调用方回滚后重试
+        assertEquals(0, count("select thumbCount from blog where id = 10"));
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long count(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.shousi.thumbweb.listener.thumb;
+
+import com.shousi.thumbweb.config.RedisConfig;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import com.shousi.thumbweb.constant.RedisLuaScriptConstant;
+import com.shousi.thumbweb.job.ThumbSyncBatch;
+import com.shousi.thumbweb.job.ThumbSyncWriter;
+import com.shousi.thumbweb.listener.thumb.msg.ThumbEvent;
+import com.shousi.thumbweb.manager.state.HashThumbStateStore;
+import com.shousi.thumbweb.model.entity.Thumb;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.pulsar.listener.Acknowledgement;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 合并规则，以及以本机 Redis（15 号库）和桩消息验证批量消费的确认、nack 与重新投递
+ */
+class ThumbConsumerTest {
+
+    private static final LocalDateTime EVENT_TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private JedisConnectionFactory connectionFactory;
+
+    /**
+     * 每次写库收到的批次
+     */
+    private final List<ThumbSyncBatch> written = Collections.synchronizedList(new ArrayList<>());
+
+    private RedisTemplate<String, Long> thumbRedisTemplate;
+
+    /**
+     * 下一次扣除变化量是否失败，模拟写库提交后、扣除前宕机
+     */
+    private boolean failNextSubtraction;
+
+    /**
+     * 下一次写库是否失败
+     */
+    private boolean failNextWrite;
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.getConnection().serverCommands().flushDb();
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void mergeKeepsLatestEventPerPair() {
+        ThumbSyncBatch batch = ThumbConsumer.merge(List.of(
+                event(1L, 10L, ThumbTypeEnum.INCR, 1),
+                event(1L, 10L, ThumbTypeEnum.DECR, 2),
+                event(2L, 10L, ThumbTypeEnum.INCR, 1),
+                event(3L, 20L, ThumbTypeEnum.DECR, 1),
+                // 重复投递
+                event(2L, 10L, ThumbTypeEnum.INCR, 1)
+        ));
+        assertEquals(List.of(2L), batch.getThumbList().stream().map(Thumb::getUserId).toList());
+        assertEquals(List.of(1L, 3L), batch.getRemoveList().stream().map(Thumb::getUserId).toList());
+    }
+
+    @Test
+    void mergeOrdersByEventTimeNotArrival() {
+        // 点赞事件被 nack 后重新投递，晚于之后的取消点赞到达
+        ThumbSyncBatch batch = ThumbConsumer.merge(List.of(
+                event(1L, 10L, ThumbTypeEnum.DECR, 2),
+                event(1L, 10L, ThumbTypeEnum.INCR, 1)
+        ));
+        assertTrue(batch.getThumbList().isEmpty());
+        assertEquals(1, batch.getRemoveList().size());
+    }
+
+    @Test
+    void batchRedeliveredAfterCommitSubtractsDeltaOnce() {
+        StringRedisTemplate stringRedisTemplate = connectRedis();
+        ThumbConsumer thumbConsumer = newConsumer(stringRedisTemplate);
+        String deltaKey = RedisKeyUtil.getBlogThumbCountDeltaKey(10L, new ThumbSyncProperties().getCountDeltaShards());
+        // 点赞脚本执行时已更新点赞状态并计入变化量：3 次点赞、1 次取消点赞
+        thumbRedisTemplate.opsForHash().put(RedisKeyUtil.getUserThumbKey(1L), "10", 1L);
+        thumbRedisTemplate.opsForHash().put(RedisKeyUtil.getUserThumbKey(2L), "10", 1L);
+        stringRedisTemplate.opsForHash().put(deltaKey, "10", "2");
+        List<Message<ThumbEvent>> messages = List.of(
+                message(1, event(1L, 10L, ThumbTypeEnum.INCR, 1)),
+                message(2, event(2L, 10L, ThumbTypeEnum.INCR, 1)),
+                message(3, event(3L, 10L, ThumbTypeEnum.INCR, 1)),
+                message(4, event(3L, 10L, ThumbTypeEnum.DECR, 2))
+        );
+        List<MessageId> messageIds = messages.stream().map(Message::getMessageId).toList();
+
+        // 写库已提交，扣除前失败，整批 nack 等待重新投递
+        failNextSubtraction = true;
+        RecordingAcknowledgement acknowledgement = new RecordingAcknowledgement();
+        thumbConsumer.processBatch(messages, acknowledgement);
+        assertEquals(messageIds, acknowledgement.nacked);
+        assertTrue(acknowledgement.acknowledged.isEmpty());
+        assertEquals("2", stringRedisTemplate.opsForHash().get(deltaKey, "10"));
+
+        acknowledgement = new RecordingAcknowledgement();
+        thumbConsumer.processBatch(messages, acknowledgement);
+        assertEquals(messageIds, acknowledgement.acknowledged);
+        assertFalse(stringRedisTemplate.hasKey(deltaKey));
+
+        // 扣除成功但确认丢失，再次投递不会重复扣除
+        thumbConsumer.processBatch(messages, new RecordingAcknowledgement());
+        assertFalse(stringRedisTemplate.hasKey(deltaKey));
+        assertEquals(3, written.size());
+    }
+
+    @Test
+    void nackedEventRedeliveredAfterNewerEventIsSkipped() {
+        StringRedisTemplate stringRedisTemplate = connectRedis();
+        ThumbConsumer thumbConsumer = newConsumer(stringRedisTemplate);
+        Message<ThumbEvent> thumb = message(1, event(1L, 10L, ThumbTypeEnum.INCR, 1));
+        Message<ThumbEvent> unthumb = message(2, event(1L, 10L, ThumbTypeEnum.DECR, 2));
+
+        thumbRedisTemplate.opsForHash().put(RedisKeyUtil.getUserThumbKey(1L), "10", 1L);
+        failNextWrite = true;
+        RecordingAcknowledgement acknowledgement = new RecordingAcknowledgement();
+        thumbConsumer.processBatch(List.of(thumb), acknowledgement);
+        assertEquals(List.of(thumb.getMessageId()), acknowledgement.nacked);
+        assertTrue(written.isEmpty());
+
+        // 点赞事件等待重新投递期间用户取消点赞
+        thumbRedisTemplate.opsForHash().delete(RedisKeyUtil.getUserThumbKey(1L), "10");
+        thumbConsumer.processBatch(List.of(unthumb), new RecordingAcknowledgement());
+        assertEquals(1, written.size());
+        assertEquals(1, written.get(0).getRemoveList().size());
+
+        // 重新投递的点赞事件与当前状态不一致，不再写库，只扣除自己的变化量
+        acknowledgement = new RecordingAcknowledgement();
+        thumbConsumer.processBatch(List.of(thumb), acknowledgement);
+        assertEquals(List.of(thumb.getMessageId()), acknowledgement.acknowledged);
+        assertEquals(1, written.size());
+        assertFalse(stringRedisTemplate.hasKey(RedisKeyUtil.getBlogThumbCountDeltaKey(10L, new ThumbSyncProperties().getCountDeltaShards())));
+    }
+
+    private StringRedisTemplate connectRedis() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().serverCommands().flushDb();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+        thumbRedisTemplate = new RedisConfig().thumbRedisTemplate(connectionFactory);
+        return new StringRedisTemplate(connectionFactory) {
+            @Override
+            public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+                if (failNextSubtraction && script == RedisLuaScriptConstant.SUBTRACT_THUMB_COUNT_DELTA_SCRIPT) {
+                    failNextSubtraction = false;
+                    throw new IllegalStateException("Redis 不可用");
+                }
+                return super.execute(script, keys, args);
+            }
+        };
+    }
+
+    private ThumbConsumer newConsumer(StringRedisTemplate stringRedisTemplate) {
+        ThumbSyncWriter thumbSyncWriter = new ThumbSyncWriter() {
+            @Override
+            public void write(ThumbSyncBatch batch) {
+                if (failNextWrite) {
+                    failNextWrite = false;
+                    throw new RuntimeException("数据库不可用");
+                }
+                written.add(batch);
+            }
+        };
+        HashThumbStateStore thumbStateStore = new HashThumbStateStore();
+        ReflectionTestUtils.setField(thumbStateStore, "thumbRedisTemplate", thumbRedisTemplate);
+        ThumbConsumer thumbConsumer = new ThumbConsumer();
+        ReflectionTestUtils.setField(thumbConsumer, "thumbSyncWriter", thumbSyncWriter);
+        ReflectionTestUtils.setField(thumbConsumer, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(thumbConsumer, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(thumbConsumer, "thumbStateStore", thumbStateStore);
+        ReflectionTestUtils.setField(thumbConsumer, "thumbSyncProperties", new ThumbSyncProperties());
+        return thumbConsumer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Message<ThumbEvent> message(long entryId, ThumbEvent event) {
+        MessageId messageId = new MessageIdImpl(1L, entryId, -1);
+        return (Message<ThumbEvent>) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getValue" -> event;
+                    case "getMessageId" -> messageId;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * @param second 事件时间，相对同一时刻的秒数
+     */
+    private static ThumbEvent event(Long userId, Long blogId, ThumbTypeEnum type, int second) {
+        return ThumbEvent.builder().userId(userId).blogId(blogId).type(type).eventTime(EVENT_TIME.plusSeconds(second)).build();
+    }
+
+    /**
+     * 记录批量确认和 nack 的消息
+     */
+    private static class RecordingAcknowledgement implements Acknowledgement {
+
+        private final List<MessageId> acknowledged = new ArrayList<>();
+        private final List<MessageId> nacked = new ArrayList<>();
+
+        @Override
+        public void acknowledge() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void acknowledge(MessageId messageId) {
+            acknowledged.add(messageId);
+        }
+
+        @Override
+        public void acknowledge(List<MessageId> messageIds) {
+            acknowledged.addAll(messageIds);
+        }
+
+        @Override
+        public void nack() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void nack(MessageId messageId) {
+            nacked.add(messageId);
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
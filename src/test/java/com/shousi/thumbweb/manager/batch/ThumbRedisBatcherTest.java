@@ -0,0 +1,168 @@
+package com.shousi.thumbweb.manager.batch;
+
+import com.shousi.thumbweb.config.RedisBatchProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbRedisBatcherTest {
+
+    /**
+     * 模拟一次 Redis 往返，偶数博客返回成功、奇数博客返回失败
+     */
+    private static class StubBatcher extends ThumbRedisBatcher {
+
+        @Override
+        public List<Long> executeBatch(List<ThumbOperation> batch) {
+            LockSupport.parkNanos(200_000);
+            return batch.stream().map(operation -> operation.blogId() % 2 == 0 ? 1L : -1L).toList();
+        }
+    }
+
+    /**
+     * 执行到 release 放行前一直阻塞，模拟一次迟迟不返回的 Redis 调用（不响应中断），记录实际执行的操作
+     */
+    private static class BlockingBatcher extends ThumbRedisBatcher {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<ThumbOperation> executed = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public List<Long> executeBatch(List<ThumbOperation> batch) {
+            executed.addAll(batch);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return batch.stream().map(operation -> 1L).toList();
+        }
+    }
+
+    private ThumbRedisBatcher newBatcher(boolean enabled) {
+        return newBatcher(enabled, new JedisConnectionFactory(new RedisStandaloneConfiguration()));
+    }
+
+    private ThumbRedisBatcher newBatcher(boolean enabled, JedisConnectionFactory connectionFactory) {
+        RedisBatchProperties redisBatchProperties = new RedisBatchProperties();
+        redisBatchProperties.setEnabled(enabled);
+        return newBatcher(new StubBatcher(), redisBatchProperties, connectionFactory);
+    }
+
+    /**
+     * 连接工厂只用于判断部署模式，不会真正建立连接
+     */
+    private ThumbRedisBatcher newBatcher(ThumbRedisBatcher thumbRedisBatcher, RedisBatchProperties redisBatchProperties,
+                                         JedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Long> thumbRedisTemplate = new RedisTemplate<>();
+        thumbRedisTemplate.setConnectionFactory(connectionFactory);
+        ReflectionTestUtils.setField(thumbRedisBatcher, "redisBatchProperties", redisBatchProperties);
+        ReflectionTestUtils.setField(thumbRedisBatcher, "thumbRedisTemplate", thumbRedisTemplate);
+        thumbRedisBatcher.start();
+        return thumbRedisBatcher;
+    }
+
+    @Test
+    void concurrentOperationsShareLuaCalls() throws Exception {
+        ThumbRedisBatcher thumbRedisBatcher = newBatcher(true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long blogId = 0; blogId < 1000; blogId++) {
+                long id = blogId;
+                futures.add(executor.submit(() -> thumbRedisBatcher.execute(1, 1L, id)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i % 2 == 0 ? 1L : -1L, futures.get(i).get());
+            }
+        } finally {
+            thumbRedisBatcher.stop();
+        }
+        assertEquals(1000, thumbRedisBatcher.getOperations());
+        assertTrue(thumbRedisBatcher.getBatches() < 500, "批次数 " + thumbRedisBatcher.getBatches());
+    }
+
+    @Test
+    void disabledExecutesOnCallerThread() {
+        ThumbRedisBatcher thumbRedisBatcher = newBatcher(false);
+        assertEquals(1L, thumbRedisBatcher.execute(1, 1L, 2L));
+        assertEquals(-1L, thumbRedisBatcher.execute(-1, 1L, 3L));
+        assertEquals(0, thumbRedisBatcher.getBatches());
+    }
+
+    @Test
+    void timeoutCancelsQueuedOperationButWaitsForRunningOne() throws Exception {
+        RedisBatchProperties redisBatchProperties = new RedisBatchProperties();
+        redisBatchProperties.setDispatchers(1);
+        redisBatchProperties.setTimeoutMillis(50);
+        BlockingBatcher thumbRedisBatcher = new BlockingBatcher();
+        newBatcher(thumbRedisBatcher, redisBatchProperties, new JedisConnectionFactory(new RedisStandaloneConfiguration()));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Long> running = executor.submit(() -> thumbRedisBatcher.execute(1, 1L, 2L));
+            while (thumbRedisBatcher.executed.isEmpty()) {
+                Thread.sleep(1);
+            }
+            // 提交线程被占用，第二个操作在队列中等待超时
+            Future<Long> queued = executor.submit(() -> thumbRedisBatcher.execute(1, 1L, 4L));
+            assertThrows(ExecutionException.class, queued::get);
+            Thread.sleep(100);
+            thumbRedisBatcher.release.countDown();
+            // 已在执行的操作超时后仍返回实际结果
+            assertEquals(1L, running.get());
+            assertEquals(1L, thumbRedisBatcher.execute(1, 1L, 6L));
+        } finally {
+            thumbRedisBatcher.stop();
+        }
+        // 超时取消的操作没有执行
+        assertEquals(List.of(2L, 6L), thumbRedisBatcher.executed.stream().map(ThumbOperation::blogId).toList());
+    }
+
+    @Test
+    void stopFailsQueuedOperations() throws Exception {
+        RedisBatchProperties redisBatchProperties = new RedisBatchProperties();
+        redisBatchProperties.setDispatchers(1);
+        BlockingBatcher thumbRedisBatcher = new BlockingBatcher();
+        newBatcher(thumbRedisBatcher, redisBatchProperties, new JedisConnectionFactory(new RedisStandaloneConfiguration()));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Long> running = executor.submit(() -> thumbRedisBatcher.execute(1, 1L, 2L));
+            while (thumbRedisBatcher.executed.isEmpty()) {
+                Thread.sleep(1);
+            }
+            Future<Long> queued = executor.submit(() -> thumbRedisBatcher.execute(1, 1L, 4L));
+            Thread.sleep(20);
+
+            thumbRedisBatcher.stop();
+            // 队列中的操作立即失败，不必等到超时
+            ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(RuntimeException.class, e.getCause());
+            thumbRedisBatcher.release.countDown();
+            assertEquals(1L, running.get());
+        }
+        assertEquals(List.of(2L), thumbRedisBatcher.executed.stream().map(ThumbOperation::blogId).toList());
+    }
+
+    @Test
+    void clusterModeFailsAtStartup() {
+        for (boolean enabled : new boolean[]{true, false}) {
+            assertThrows(RuntimeException.class, () -> newBatcher(enabled,
+                    new JedisConnectionFactory(new RedisClusterConfiguration(List.of("localhost:7000")))));
+        }
+    }
+}
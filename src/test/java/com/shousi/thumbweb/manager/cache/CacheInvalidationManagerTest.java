@@ -0,0 +1,118 @@
+package com.shousi.thumbweb.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.config.RedisConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 两个节点连接同一个本机 Redis，验证失效广播的完整往返
+ */
+class CacheInvalidationManagerTest {
+
+    private JedisConnectionFactory connectionFactory;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void peerEvictsPublishedKeyAndPublisherKeepsItsOwn() throws Exception {
+        localRedis();
+        Node nodeA = newNode("node-a");
+        Node nodeB = newNode("node-b");
+        CacheKey cacheKey = new CacheKey("thumb:1", "10");
+        CacheKey otherKey = new CacheKey("thumb:1", "20");
+        for (Node node : List.of(nodeA, nodeB)) {
+            node.localCache.put(cacheKey, 100L);
+            node.localCache.put(otherKey, 200L);
+        }
+
+        // 登记后直到 flush 才广播
+        nodeA.invalidationManager.publish("thumb:1", "10");
+        Thread.sleep(100);
+        assertEquals(100L, nodeB.localCache.getIfPresent(cacheKey));
+
+        nodeA.invalidationManager.flush();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (nodeB.localCache.getIfPresent(cacheKey) != null) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待失效广播超时");
+            Thread.sleep(10);
+        }
+        assertEquals(200L, nodeB.localCache.getIfPresent(otherKey));
+        // 发送节点写入时已自行更新本地缓存，忽略自己的广播
+        assertEquals(100L, nodeA.localCache.getIfPresent(cacheKey));
+    }
+
+    private Node newNode(String nodeId) throws InterruptedException {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getCluster().setNodeId(nodeId);
+        CacheManager cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "thumbStateStore", new CacheManagerTest.FakeThumbStateStore());
+        ReflectionTestUtils.setField(cacheManager, "cacheProperties", cacheProperties);
+        cacheManager.getHotKeyDetector();
+        Cache<CacheKey, Object> localCache = cacheManager.localCache();
+        cacheManager.negativeCache();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        containers.add(container);
+
+        RedisTemplate<String, Object> redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        CacheInvalidationManager invalidationManager = new CacheInvalidationManager();
+        ReflectionTestUtils.setField(invalidationManager, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(invalidationManager, "redisMessageListenerContainer", container);
+        ReflectionTestUtils.setField(invalidationManager, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(invalidationManager, "cacheProperties", cacheProperties);
+        invalidationManager.subscribe();
+        container.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!container.isListening()) {
+            assertTrue(System.currentTimeMillis() < deadline, "订阅超时");
+            Thread.sleep(10);
+        }
+        return new Node(invalidationManager, localCache);
+    }
+
+    private record Node(CacheInvalidationManager invalidationManager, Cache<CacheKey, Object> localCache) {
+    }
+
+    /**
+     * 本机 6379 端口的 Redis（15 号库），不可用时跳过
+     */
+    private void localRedis() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().ping();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+    }
+}
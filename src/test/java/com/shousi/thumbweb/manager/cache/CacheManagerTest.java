@@ -0,0 +1,259 @@
+package com.shousi.thumbweb.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.manager.state.ThumbStateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheManagerTest {
+
+    /**
+     * CacheManager 中热点探测的最小计数，第 HOT_COUNT 次访问时 Key 成为热点
+     */
+    private static final int HOT_COUNT = 10;
+
+    private static final String HASH_KEY = "thumb:1";
+
+    private FakeThumbStateStore thumbStateStore;
+    private CacheManager cacheManager;
+    private Cache<CacheKey, Object> localCache;
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setNegativeExpireSeconds(1);
+        thumbStateStore = new FakeThumbStateStore();
+        cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "thumbStateStore", thumbStateStore);
+        ReflectionTestUtils.setField(cacheManager, "cacheProperties", cacheProperties);
+        cacheManager.getHotKeyDetector();
+        localCache = cacheManager.localCache();
+        cacheManager.negativeCache();
+    }
+
+    @Test
+    void hotKeyIsCachedLocally() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        for (int i = 0; i < HOT_COUNT; i++) {
+            assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+        }
+        assertEquals(100L, localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+        int reads = thumbStateStore.reads.get();
+        assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+        assertEquals(reads, thumbStateStore.reads.get());
+    }
+
+    @Test
+    void primitiveGetSharesHotKeyWithStringGet() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        // 两种查询方式的访问计入同一个热点 Key
+        for (int i = 0; i < HOT_COUNT; i++) {
+            assertEquals(100L, i % 2 == 0 ? cacheManager.get(1L, 10L) : cacheManager.get(HASH_KEY, "10"));
+        }
+        assertEquals(100L, localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+    }
+
+    @Test
+    void invalidationDuringRedisReadIsNotOverwritten() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        for (int i = 0; i < HOT_COUNT - 1; i++) {
+            cacheManager.get(HASH_KEY, "10");
+        }
+        // 成为热点的这次查询读到旧值后、写入本地缓存前，其他节点取消点赞的失效到达
+        thumbStateStore.onRead = () -> {
+            thumbStateStore.data.get(HASH_KEY).remove("10");
+            cacheManager.invalidateAll(List.of(new CacheKey(HASH_KEY, "10")));
+        };
+        assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+        assertNull(localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+        assertNull(cacheManager.get(HASH_KEY, "10"));
+    }
+
+    @Test
+    void invalidationDuringBatchReadIsNotOverwritten() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        thumbStateStore.put(HASH_KEY, "20", 200L);
+        for (int i = 0; i < HOT_COUNT - 1; i++) {
+            cacheManager.getAll(HASH_KEY, List.of("10", "20"));
+        }
+        thumbStateStore.onRead = () -> {
+            thumbStateStore.data.get(HASH_KEY).remove("10");
+            cacheManager.invalidateAll(List.of(new CacheKey(HASH_KEY, "10")));
+        };
+        assertEquals(Arrays.asList(100L, 200L), cacheManager.getAll(HASH_KEY, List.of("10", "20")));
+        assertNull(localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+        assertEquals(200L, localCache.getIfPresent(new CacheKey(HASH_KEY, "20")));
+    }
+
+    @Test
+    void invalidationDuringGlobalHotKeyPreloadIsNotOverwritten() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        thumbStateStore.onRead = () -> cacheManager.invalidateAll(List.of(new CacheKey(HASH_KEY, "10")));
+        cacheManager.refreshGlobalHotKeys(List.of(HASH_KEY + ":10"));
+        assertNull(localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+
+        thumbStateStore.onRead = null;
+        cacheManager.refreshGlobalHotKeys(List.of(HASH_KEY + ":10"));
+        assertEquals(100L, localCache.getIfPresent(new CacheKey(HASH_KEY, "10")));
+    }
+
+    @Test
+    void getAllMergesLocalHitsWithOneMultiGetInInputOrder() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        thumbStateStore.put(HASH_KEY, "20", 200L);
+        thumbStateStore.put(HASH_KEY, "40", 400L);
+        localCache.put(new CacheKey(HASH_KEY, "20"), 200L);
+        localCache.put(new CacheKey(HASH_KEY, "40"), 400L);
+
+        List<Object> values = cacheManager.getAll(HASH_KEY, List.of("40", "10", "30", "20"));
+        // 结果与输入顺序一致，不存在的为 null
+        assertEquals(Arrays.asList(400L, 100L, null, 200L), values);
+        // 只有本地未命中的 field 合并为一次 HMGET，顺序与输入一致
+        assertEquals(List.of(List.of("10", "30")), thumbStateStore.multiGets);
+    }
+
+    @Test
+    void getAllSkipsRedisForTombstonedFields() {
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        cacheManager.putTombstone(HASH_KEY, "20");
+        cacheManager.getAll(HASH_KEY, List.of("10", "20", "30"));
+        assertEquals(List.of(List.of("10", "30")), thumbStateStore.multiGets);
+
+        // 不存在的 30 记入负缓存，再次查询只剩没有缓存的 10
+        localCache.invalidateAll();
+        assertEquals(Arrays.asList(100L, null, null), cacheManager.getAll(HASH_KEY, List.of("10", "20", "30")));
+        assertEquals(List.of("10"), thumbStateStore.multiGets.get(1));
+
+        // 全部命中时不访问 Redis
+        localCache.put(new CacheKey(HASH_KEY, "10"), 100L);
+        assertEquals(Arrays.asList(100L, null, null), cacheManager.getAll(HASH_KEY, List.of("10", "20", "30")));
+        assertEquals(2, thumbStateStore.multiGets.size());
+    }
+
+    @Test
+    void getAllHandlesEmptyAndDuplicateFields() {
+        assertEquals(List.of(), cacheManager.getAll(HASH_KEY, List.of()));
+        assertTrue(thumbStateStore.multiGets.isEmpty());
+
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        assertEquals(Arrays.asList(100L, null, 100L), cacheManager.getAll(HASH_KEY, List.of("10", "30", "10")));
+    }
+
+    @Test
+    void tombstoneShortCircuitsRedisUntilNegativeTtl() throws InterruptedException {
+        cacheManager.putTombstone(HASH_KEY, "10");
+        assertNull(cacheManager.get(HASH_KEY, "10"));
+        assertEquals(0, thumbStateStore.reads.get());
+
+        // 负缓存过期后重新查询 Redis
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        Thread.sleep(1100);
+        assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+        assertEquals(1, thumbStateStore.reads.get());
+    }
+
+    @Test
+    void missingKeyBecomesTombstone() {
+        assertNull(cacheManager.get(HASH_KEY, "10"));
+        assertNull(cacheManager.get(HASH_KEY, "10"));
+        assertEquals(1, thumbStateStore.reads.get());
+    }
+
+    @Test
+    void localWriteRemovesTombstone() {
+        cacheManager.putTombstone(HASH_KEY, "10");
+        thumbStateStore.put(HASH_KEY, "10", 100L);
+        cacheManager.putIfPresent(HASH_KEY, "10", 100L);
+        assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+    }
+
+    @Test
+    void tombstoneLosesToConcurrentWrite() {
+        // 查询 Redis 得到不存在后、写入负缓存前，同一 Key 被点赞
+        thumbStateStore.onRead = () -> {
+            thumbStateStore.put(HASH_KEY, "10", 100L);
+            cacheManager.invalidate(HASH_KEY, "10");
+        };
+        assertNull(cacheManager.get(HASH_KEY, "10"));
+        assertEquals(100L, cacheManager.get(HASH_KEY, "10"));
+        assertEquals(2, thumbStateStore.reads.get());
+    }
+
+    @Test
+    void batchTombstoneLosesToConcurrentWrite() {
+        thumbStateStore.onRead = () -> {
+            thumbStateStore.put(HASH_KEY, "20", 200L);
+            cacheManager.invalidateAll(List.of(new CacheKey(HASH_KEY, "20")));
+        };
+        assertEquals(Arrays.asList(null, null), cacheManager.getAll(HASH_KEY, List.of("10", "20")));
+        assertEquals(Arrays.asList(null, 200L), cacheManager.getAll(HASH_KEY, List.of("10", "20")));
+        assertEquals(List.of("20"), thumbStateStore.multiGets.get(1));
+    }
+
+    /**
+     * 内存中的点赞状态，每次读取计数，并可在读取后、返回前执行回调模拟并发修改
+     */
+    static class FakeThumbStateStore implements ThumbStateStore {
+
+        final Map<String, Map<String, Long>> data = new ConcurrentHashMap<>();
+        final AtomicInteger reads = new AtomicInteger();
+        final List<List<String>> multiGets = new ArrayList<>();
+        Runnable onRead;
+
+        @Override
+        public String getKey(String hashKey, String field) {
+            return hashKey;
+        }
+
+        @Override
+        public Long get(String hashKey, String field) {
+            Long value = data.getOrDefault(hashKey, Map.of()).get(field);
+            afterRead();
+            return value;
+        }
+
+        @Override
+        public List<Long> multiGet(String hashKey, List<String> fields) {
+            multiGets.add(List.copyOf(fields));
+            Map<String, Long> hash = data.getOrDefault(hashKey, Map.of());
+            List<Long> values = new ArrayList<>(fields.size());
+            for (String field : fields) {
+                values.add(hash.get(field));
+            }
+            afterRead();
+            return values;
+        }
+
+        @Override
+        public void put(String hashKey, String field, Long value) {
+            data.computeIfAbsent(hashKey, k -> new ConcurrentHashMap<>()).put(field, value);
+        }
+
+        @Override
+        public void putAll(String hashKey, Map<String, Long> values) {
+            data.computeIfAbsent(hashKey, k -> new ConcurrentHashMap<>()).putAll(values);
+        }
+
+        @Override
+        public void delete(String hashKey, Collection<String> fields) {
+            data.getOrDefault(hashKey, new HashMap<>()).keySet().removeAll(fields);
+        }
+
+        private void afterRead() {
+            reads.incrementAndGet();
+            Runnable callback = onRead;
+            if (callback != null) {
+                onRead = null;
+                callback.run();
+            }
+        }
+    }
+}
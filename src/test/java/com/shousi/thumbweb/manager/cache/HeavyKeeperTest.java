@@ -0,0 +1,140 @@
+package com.shousi.thumbweb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyKeeperTest {
+
+    @Test
+    void hotKeyEntersTopKAfterMinCount() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 10);
+        for (int i = 0; i < 9; i++) {
+            assertFalse(heavyKeeper.add("hot", 1).isHotKey());
+        }
+        assertTrue(heavyKeeper.add("hot", 1).isHotKey());
+        assertEquals(List.of(new Item("hot", 10)), heavyKeeper.list());
+    }
+
+    @Test
+    void listIsSortedAndBoundedByK() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(3, 1000, 5, 0.92, 1);
+        for (int i = 1; i <= 5; i++) {
+            for (int j = 0; j < i * 10; j++) {
+                heavyKeeper.add("key" + i, 1);
+            }
+        }
+        List<Item> list = heavyKeeper.list();
+        assertEquals(3, list.size());
+        assertEquals("key5", list.get(0).key());
+        assertEquals("key4", list.get(1).key());
+        assertEquals("key3", list.get(2).key());
+    }
+
+    @Test
+    void smallestKeyIsExpelledWhenFull() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(2, 1000, 5, 0.92, 1);
+        List<Item> expelled = new ArrayList<>();
+        heavyKeeper.addExpelledListener(expelled::add);
+        heavyKeeper.add("a", 5);
+        heavyKeeper.add("b", 3);
+        AddResult result = heavyKeeper.add("c", 4);
+        assertTrue(result.isHotKey());
+        assertEquals("b", result.getExpelledKey());
+        assertEquals(List.of(new Item("b", 3)), expelled);
+        assertEquals(1, heavyKeeper.expelledProcessed());
+        assertEquals(0, heavyKeeper.expelledDropped());
+    }
+
+    @Test
+    void fadingHalvesCounts() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(2, 1000, 5, 0.92, 1);
+        heavyKeeper.add("a", 8);
+        heavyKeeper.add("b", 6);
+        heavyKeeper.fading();
+        assertEquals(List.of(new Item("a", 4), new Item("b", 3)), heavyKeeper.list());
+        assertEquals(7, heavyKeeper.total());
+    }
+
+    @Test
+    void compositeKeyMatchesConcatenatedKey() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 2);
+        heavyKeeper.add("thumb:1", "2", 1);
+        assertTrue(heavyKeeper.add("thumb:1:2", 1).isHotKey());
+        assertEquals(List.of(new Item("thumb:1:2", 2)), heavyKeeper.list());
+    }
+
+    @Test
+    void primitiveKeyMatchesCompositeKey() {
+        long[][] pairs = {{1, 2}, {0, 0}, {123456789L, 9876543210L}, {Long.MAX_VALUE, Long.MIN_VALUE}, {-7, 10}};
+        for (long[] pair : pairs) {
+            HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 2);
+            heavyKeeper.add("thumb:" + pair[0], String.valueOf(pair[1]), 1);
+            assertTrue(heavyKeeper.add(pair[0], pair[1]).isHotKey());
+            assertEquals(List.of(new Item("thumb:" + pair[0] + ":" + pair[1], 2)), heavyKeeper.list());
+        }
+    }
+
+    @Test
+    void primitiveKeyIsMaterializedOnAdmission() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 2);
+        heavyKeeper.add(1L, 2L);
+        assertTrue(heavyKeeper.list().isEmpty());
+        assertSame(AddResult.HOT, heavyKeeper.add(1L, 2L));
+        assertEquals(List.of(new Item("thumb:1:2", 2)), heavyKeeper.list());
+        assertEquals(new CacheKey("thumb:1", "2"), CacheKey.parse(heavyKeeper.list().get(0).key()));
+    }
+
+    @Test
+    void addAllMatchesSingleAdds() {
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 2);
+        heavyKeeper.add("thumb:1", "2", 1);
+        List<AddResult> results = heavyKeeper.addAll("thumb:1", List.of("2", "3"), 1);
+        assertTrue(results.get(0).isHotKey());
+        assertFalse(results.get(1).isHotKey());
+        assertEquals(List.of(new Item("thumb:1:2", 2)), heavyKeeper.list());
+        assertEquals(3, heavyKeeper.total());
+    }
+
+    @Test
+    void rowsUseIndependentColumns() {
+        // 宽度足够时，不同 Key 不会因为各行同列而互相衰减
+        HeavyKeeper heavyKeeper = new HeavyKeeper(100, 4096, 5, 0.92, 1);
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 20; j++) {
+                heavyKeeper.add("key" + i, 1);
+            }
+        }
+        assertEquals(50, heavyKeeper.list().size());
+        heavyKeeper.list().forEach(item -> assertEquals(20, item.count()));
+    }
+
+    @Test
+    void countsDecayLazilyWithTime() {
+        AtomicLong now = new AtomicLong();
+        HeavyKeeper heavyKeeper = new HeavyKeeper(10, 1000, 5, 0.92, 4, Duration.ofSeconds(1), now::get);
+        List<Item> expelled = new ArrayList<>();
+        heavyKeeper.addExpelledListener(expelled::add);
+        heavyKeeper.add("stale", 16);
+        assertEquals(List.of(new Item("stale", 16)), heavyKeeper.list());
+
+        // 经过两个周期，堆中计数衰减为 1/4
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        heavyKeeper.maintain();
+        assertEquals(List.of(new Item("stale", 4)), heavyKeeper.list());
+        // 桶在访问时按同样的纪元差惰性衰减
+        assertTrue(heavyKeeper.add("stale", 1).isHotKey());
+        assertEquals(List.of(new Item("stale", 5)), heavyKeeper.list());
+
+        // 再经过一个周期跌破 minCount，被移出 TopK
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        heavyKeeper.maintain();
+        assertTrue(heavyKeeper.list().isEmpty());
+        assertEquals(List.of(new Item("stale", 2)), expelled);
+    }
+}
@@ -0,0 +1,165 @@
+package com.shousi.thumbweb.manager.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.config.RedisConfig;
+import com.shousi.thumbweb.constant.HotKeyConstant;
+import com.shousi.thumbweb.manager.state.HashThumbStateStore;
+import com.shousi.thumbweb.util.RedisKeyUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 多个节点连接同一个本机 Redis，验证快照上报、合并租约与全局热点广播
+ */
+class HotKeyClusterManagerTest {
+
+    private JedisConnectionFactory connectionFactory;
+
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        if (connectionFactory != null) {
+            connectionFactory.getConnection().serverCommands().flushDb();
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void hotKeysSplitAcrossNodesAreMergedAndBroadcast() throws Exception {
+        localRedis();
+        RedisTemplate<String, Long> thumbRedisTemplate = new RedisConfig().thumbRedisTemplate(connectionFactory);
+        thumbRedisTemplate.opsForHash().put("thumb:1", "10", 100L);
+        thumbRedisTemplate.opsForHash().put("thumb:2", "20", 200L);
+
+        Node nodeA = newNode("node-a");
+        Node nodeB = newNode("node-b");
+        // 每个节点各自只看到一部分访问
+        for (int i = 0; i < 6; i++) {
+            nodeA.hotKeyDetector.add("thumb:1", "10", 1);
+            nodeB.hotKeyDetector.add("thumb:2", "20", 1);
+        }
+        nodeA.manager.sync();
+        nodeB.manager.sync();
+
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        // 快照整体写入并带有过期时间
+        assertEquals("6", stringRedisTemplate.opsForHash().get(RedisKeyUtil.getHotKeyNodeKey("node-b"), "thumb:2:20"));
+        assertTrue(stringRedisTemplate.getExpire(RedisKeyUtil.getHotKeyNodeKey("node-b"), TimeUnit.MILLISECONDS) > 0);
+        // 先到的节点持有合并租约，另一个节点不会续期或抢占
+        assertEquals("node-a", stringRedisTemplate.opsForValue().get(HotKeyConstant.MERGER_LEASE_KEY));
+
+        // 持有租约的节点下一轮合并到两个节点的快照，广播后各节点都预加载了全部全局热点
+        nodeA.manager.sync();
+        for (Node node : List.of(nodeA, nodeB)) {
+            await(() -> node.localCache.getIfPresent(new CacheKey("thumb:1", "10")) != null
+                    && node.localCache.getIfPresent(new CacheKey("thumb:2", "20")) != null);
+            assertEquals(100L, node.localCache.getIfPresent(new CacheKey("thumb:1", "10")));
+            assertEquals(200L, node.localCache.getIfPresent(new CacheKey("thumb:2", "20")));
+        }
+    }
+
+    @Test
+    void emptySnapshotReplacesPreviousOne() {
+        localRedis();
+        Node node = newNode("node-a");
+        for (int i = 0; i < 6; i++) {
+            node.hotKeyDetector.add("thumb:1", "10", 1);
+        }
+        node.manager.sync();
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        assertTrue(stringRedisTemplate.hasKey(RedisKeyUtil.getHotKeyNodeKey("node-a")));
+
+        // 热点全部衰减出 TopK 后，上报的空快照删除旧快照
+        for (int i = 0; i < 3; i++) {
+            node.hotKeyDetector.fading();
+        }
+        node.manager.sync();
+        assertFalse(stringRedisTemplate.hasKey(RedisKeyUtil.getHotKeyNodeKey("node-a")));
+    }
+
+    private Node newNode(String nodeId) {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getCluster().setNodeId(nodeId);
+        RedisConfig redisConfig = new RedisConfig();
+
+        HashThumbStateStore thumbStateStore = new HashThumbStateStore();
+        ReflectionTestUtils.setField(thumbStateStore, "thumbRedisTemplate", redisConfig.thumbRedisTemplate(connectionFactory));
+        CacheManager cacheManager = new CacheManager();
+        ReflectionTestUtils.setField(cacheManager, "thumbStateStore", thumbStateStore);
+        ReflectionTestUtils.setField(cacheManager, "cacheProperties", cacheProperties);
+        cacheManager.getHotKeyDetector();
+        Cache<CacheKey, Object> localCache = cacheManager.localCache();
+        cacheManager.negativeCache();
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.afterPropertiesSet();
+        containers.add(container);
+
+        TopK hotKeyDetector = new HeavyKeeper(10, 1000, 5, 0.92, 5);
+        HotKeyClusterManager manager = new HotKeyClusterManager();
+        ReflectionTestUtils.setField(manager, "redisTemplate", redisConfig.redisTemplate(connectionFactory));
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", new StringRedisTemplate(connectionFactory));
+        ReflectionTestUtils.setField(manager, "redisMessageListenerContainer", container);
+        ReflectionTestUtils.setField(manager, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(manager, "hotKeyDetector", hotKeyDetector);
+        ReflectionTestUtils.setField(manager, "cacheProperties", cacheProperties);
+        manager.subscribe();
+        container.start();
+        await(container::isListening);
+        return new Node(manager, hotKeyDetector, localCache);
+    }
+
+    private record Node(HotKeyClusterManager manager, TopK hotKeyDetector, Cache<CacheKey, Object> localCache) {
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * 本机 6379 端口的 Redis（15 号库），不可用时跳过
+     */
+    private void localRedis() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().serverCommands().flushDb();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+    }
+}
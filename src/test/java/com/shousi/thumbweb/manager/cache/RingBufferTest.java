@@ -0,0 +1,53 @@
+package com.shousi.thumbweb.manager.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void rejectsWhenFullAndKeepsOrder() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertFalse(ringBuffer.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, ringBuffer.drain(drained::add));
+        assertEquals(List.of(0, 1, 2, 3), drained);
+        assertTrue(ringBuffer.isEmpty());
+        assertTrue(ringBuffer.offer(5));
+        assertEquals(5, ringBuffer.poll());
+    }
+
+    @Test
+    void concurrentProducersNeverLoseAcceptedElements() throws InterruptedException {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(1024);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        int producers = 4;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            Thread.startVirtualThread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    if (ringBuffer.offer(i)) {
+                        accepted.incrementAndGet();
+                    }
+                    if (i % 8 == 0) {
+                        ringBuffer.drain(e -> consumed.incrementAndGet());
+                    }
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        ringBuffer.drain(e -> consumed.incrementAndGet());
+        assertEquals(accepted.get(), consumed.get());
+    }
+}
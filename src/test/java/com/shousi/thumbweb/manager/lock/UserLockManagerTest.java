@@ -0,0 +1,65 @@
+package com.shousi.thumbweb.manager.lock;
+
+import com.shousi.thumbweb.config.LockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserLockManagerTest {
+
+    private UserLockManager newLockManager(long waitMillis) {
+        LockProperties lockProperties = new LockProperties();
+        lockProperties.setStripes(16);
+        lockProperties.setWaitMillis(waitMillis);
+        UserLockManager userLockManager = new UserLockManager();
+        ReflectionTestUtils.setField(userLockManager, "lockProperties", lockProperties);
+        userLockManager.init();
+        return userLockManager;
+    }
+
+    @Test
+    void sameUserIsSerialized() throws InterruptedException {
+        UserLockManager userLockManager = newLockManager(3000);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                executor.submit(() -> userLockManager.executeWithLock(1L, () -> {
+                    maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    return inside.decrementAndGet();
+                }));
+            }
+        }
+        assertEquals(1, maxInside.get());
+        assertEquals(100, userLockManager.getAcquired());
+    }
+
+    @Test
+    void waitTimesOut() throws InterruptedException {
+        UserLockManager userLockManager = newLockManager(50);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.startVirtualThread(() -> userLockManager.executeWithLock(1L, () -> {
+            locked.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }));
+        locked.await();
+        assertThrows(RuntimeException.class, () -> userLockManager.executeWithLock(1L, () -> true));
+        assertEquals(1, userLockManager.getTimeouts());
+        assertEquals(1, userLockManager.getContended());
+        release.countDown();
+        holder.join();
+    }
+}
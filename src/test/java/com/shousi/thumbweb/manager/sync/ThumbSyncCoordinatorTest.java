@@ -0,0 +1,116 @@
+package com.shousi.thumbweb.manager.sync;
+
+import com.shousi.thumbweb.config.CacheProperties;
+import com.shousi.thumbweb.config.ThumbSyncProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ThumbSyncCoordinatorTest {
+
+    private static final int SHARDS = 16;
+
+    private JedisConnectionFactory connectionFactory;
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            connectionFactory.getConnection().serverCommands().flushDb();
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void ownerIsBalancedAndMovesOnlyToNewNode() {
+        List<String> nodeIds = new ArrayList<>(List.of("node-a", "node-b", "node-c"));
+        int[] before = IntStream.range(0, 1024).map(shard -> nodeIds.indexOf(ThumbSyncCoordinator.owner(nodeIds, shard))).toArray();
+        for (int node = 0; node < nodeIds.size(); node++) {
+            int index = node;
+            long owned = Arrays.stream(before).filter(owner -> owner == index).count();
+            assertTrue(owned > 250 && owned < 430, "节点 " + node + " 分到 " + owned + " 个分片");
+        }
+        nodeIds.add("node-d");
+        for (int shard = 0; shard < before.length; shard++) {
+            String owner = ThumbSyncCoordinator.owner(nodeIds, shard);
+            if (!owner.equals(nodeIds.get(before[shard]))) {
+                assertEquals("node-d", owner);
+            }
+        }
+    }
+
+    @Test
+    void everyShardHasExactlyOneOwnerAcrossNodes() {
+        StringRedisTemplate stringRedisTemplate = localRedis();
+        List<ThumbSyncCoordinator> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            nodes.add(newCoordinator(stringRedisTemplate, "node-" + i));
+        }
+        // 节点陆续加入，收敛过程中任意时刻同一分片最多一个节点持有
+        converge(nodes);
+        assertTrue(nodes.stream().allMatch(node -> IntStream.range(0, SHARDS).anyMatch(node::owns)));
+
+        // 一个节点下线后由剩余节点接手其分片
+        nodes.remove(0).stop();
+        converge(nodes);
+    }
+
+    private void converge(List<ThumbSyncCoordinator> nodes) {
+        for (int round = 0; round < 5; round++) {
+            for (ThumbSyncCoordinator node : nodes) {
+                node.heartbeat();
+                assertAtMostOneOwner(nodes);
+            }
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int index = shard;
+            assertEquals(1, nodes.stream().filter(node -> node.owns(index)).count(), "分片 " + shard);
+        }
+    }
+
+    private void assertAtMostOneOwner(List<ThumbSyncCoordinator> nodes) {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int index = shard;
+            assertTrue(nodes.stream().filter(node -> node.owns(index)).count() <= 1, "分片 " + shard);
+        }
+    }
+
+    private ThumbSyncCoordinator newCoordinator(StringRedisTemplate stringRedisTemplate, String nodeId) {
+        ThumbSyncProperties thumbSyncProperties = new ThumbSyncProperties();
+        thumbSyncProperties.setShards(SHARDS);
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getCluster().setNodeId(nodeId);
+        ThumbSyncCoordinator coordinator = new ThumbSyncCoordinator();
+        ReflectionTestUtils.setField(coordinator, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(coordinator, "thumbSyncProperties", thumbSyncProperties);
+        ReflectionTestUtils.setField(coordinator, "cacheProperties", cacheProperties);
+        return coordinator;
+    }
+
+    /**
+     * 本机 6379 端口的 Redis（15 号库），不可用时跳过
+     */
+    private StringRedisTemplate localRedis() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration("localhost", 6379);
+        configuration.setDatabase(15);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try {
+            connectionFactory.getConnection().serverCommands().flushDb();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            assumeTrue(false, "本机 Redis 不可用");
+        }
+        return new StringRedisTemplate(connectionFactory);
+    }
+}
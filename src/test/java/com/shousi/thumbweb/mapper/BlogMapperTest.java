@@ -0,0 +1,84 @@
+package com.shousi.thumbweb.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.shousi.thumbweb.model.entity.Blog;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 以 H2 的 MySQL 兼容模式验证博客列表的游标分页
+ */
+class BlogMapperTest {
+
+    private JdbcDataSource dataSource;
+    private SqlSession sqlSession;
+    private BlogMapper blogMapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:blog_mapper;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table blog (id bigint primary key, userId bigint not null, title varchar(512),"
+                    + " coverImg varchar(1024), content text, thumbCount int not null default 0,"
+                    + " createTime datetime not null, updateTime datetime)");
+            statement.execute("create index idx_createTime_id on blog (createTime, id)");
+            // 每 3 篇博客的创建时间相同，验证同一时间内按 id 翻页不重不漏
+            statement.execute("insert into blog (id, userId, title, content, createTime)"
+                    + " select \"X\", 1, 'title', 'content', timestampadd(second, \"X\" / 3, timestamp '2025-01-01 00:00:00')"
+                    + " from system_range(1, 20)");
+        }
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(false);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        String resource = "mapper/BlogMapper.xml";
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resource)) {
+            new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        sqlSession = new MybatisSqlSessionFactoryBuilder().build(configuration).openSession(true);
+        blogMapper = sqlSession.getMapper(BlogMapper.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sqlSession.close();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+    }
+
+    @Test
+    void cursorWalksAllBlogsInOrderWithoutContent() {
+        List<Long> ids = new ArrayList<>();
+        List<Blog> page = blogMapper.listByCursor(null, null, 4);
+        while (!page.isEmpty()) {
+            page.forEach(blog -> {
+                ids.add(blog.getId());
+                assertNull(blog.getContent());
+            });
+            Blog last = page.get(page.size() - 1);
+            page = blogMapper.listByCursor(last.getCreateTime(), last.getId(), 4);
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long id = 20; id >= 1; id--) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+    }
+}
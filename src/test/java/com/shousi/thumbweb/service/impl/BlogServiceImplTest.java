@@ -0,0 +1,26 @@
+package com.shousi.thumbweb.service.impl;
+
+import com.shousi.thumbweb.common.ErrorCode;
+import com.shousi.thumbweb.exception.BusinessException;
+import com.shousi.thumbweb.model.dto.blog.BlogQueryRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlogServiceImplTest {
+
+    @Test
+    void halfSpecifiedCursorIsRejected() {
+        BlogServiceImpl blogService = new BlogServiceImpl();
+        BlogQueryRequest onlyCreateTime = new BlogQueryRequest();
+        onlyCreateTime.setCursorCreateTime(1735689600000L);
+        BlogQueryRequest onlyId = new BlogQueryRequest();
+        onlyId.setCursorId(10L);
+        for (BlogQueryRequest blogQueryRequest : new BlogQueryRequest[]{onlyCreateTime, onlyId}) {
+            BusinessException e = assertThrows(BusinessException.class,
+                    () -> blogService.listBlogVOByCursor(blogQueryRequest, null));
+            assertEquals(ErrorCode.PARAMS_ERROR, e.getErrorCode());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.shousi.thumbweb.service.impl;
+
+import com.shousi.thumbweb.manager.batch.ThumbOperation;
+import com.shousi.thumbweb.manager.batch.ThumbRedisBatcher;
+import com.shousi.thumbweb.model.dto.thumb.BatchThumbRequest;
+import com.shousi.thumbweb.model.entity.User;
+import com.shousi.thumbweb.model.enums.LuaStatusEnum;
+import com.shousi.thumbweb.model.enums.ThumbTypeEnum;
+import com.shousi.thumbweb.model.vo.ThumbResultVO;
+import com.shousi.thumbweb.service.BlogService;
+import com.shousi.thumbweb.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThumbRedisServiceImplTest {
+
+    @Test
+    void nonexistentBlogsFailWithoutBeingQueued() {
+        List<ThumbOperation> executed = new ArrayList<>();
+        ThumbRedisBatcher thumbRedisBatcher = new ThumbRedisBatcher() {
+            @Override
+            public List<Long> executeBatch(List<ThumbOperation> batch) {
+                executed.addAll(batch);
+                // 用户已点赞过 20，重复点赞失败
+                return batch.stream().map(operation -> (long) LuaStatusEnum.FAIL.getValue()).toList();
+            }
+        };
+        List<Collection<Long>> queries = new ArrayList<>();
+        ThumbRedisServiceImpl thumbService = new ThumbRedisServiceImpl();
+        ReflectionTestUtils.setField(thumbService, "thumbRedisBatcher", thumbRedisBatcher);
+        ReflectionTestUtils.setField(thumbService, "userService", stub(UserService.class, (method, args) -> {
+            User user = new User();
+            user.setId(1L);
+            return user;
+        }));
+        ReflectionTestUtils.setField(thumbService, "blogService", stub(BlogService.class, (method, args) -> {
+            @SuppressWarnings("unchecked")
+            Collection<Long> blogIds = (Collection<Long>) args[0];
+            queries.add(blogIds);
+            return blogIds.contains(20L) ? Set.of(20L) : Set.of();
+        }));
+
+        List<ThumbResultVO> results = thumbService.batchThumb(request(10L, 20L, 30L, 10L), null);
+
+        assertEquals(1, queries.size());
+        assertEquals(Set.of(10L, 20L, 30L), new HashSet<>(queries.get(0)));
+        assertEquals(List.of(new ThumbOperation(ThumbTypeEnum.INCR.getValue(), 1L, 20L)), executed);
+        assertEquals(List.of(false, false, false, false), results.stream().map(ThumbResultVO::getSuccess).toList());
+        assertEquals(List.of(10L, 20L, 30L, 10L), results.stream().map(ThumbResultVO::getBlogId).toList());
+    }
+
+    private static BatchThumbRequest request(Long... blogIds) {
+        BatchThumbRequest batchThumbRequest = new BatchThumbRequest();
+        batchThumbRequest.setItems(Arrays.stream(blogIds).map(blogId -> {
+            BatchThumbRequest.ThumbItem item = new BatchThumbRequest.ThumbItem();
+            item.setBlogId(blogId);
+            item.setType(ThumbTypeEnum.INCR.getValue());
+            return item;
+        }).toList());
+        return batchThumbRequest;
+    }
+
+    private interface StubMethod {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * 只实现被调用的单个方法的接口桩
+     */
+    private static <T> T stub(Class<T> type, StubMethod stubMethod) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> stubMethod.invoke(method.getName(), args)));
+    }
+}